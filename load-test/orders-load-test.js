@@ -0,0 +1,59 @@
+import http from 'k6/http';
+import { check } from 'k6';
+
+// Usage: k6 run -e BASE_URL=http://localhost:8080 -e VUS=5000 load-test/orders-load-test.js
+// Run once against each execution mode and compare the http_req_duration percentiles.
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+const VUS = parseInt(__ENV.VUS || '5000');
+const SEED_ORDERS = parseInt(__ENV.SEED_ORDERS || '500');
+
+export const options = {
+    scenarios: {
+        orders: {
+            executor: 'ramping-vus',
+            startVUs: 0,
+            stages: [
+                { duration: '30s', target: VUS },
+                { duration: '2m', target: VUS },
+                { duration: '15s', target: 0 },
+            ],
+        },
+    },
+    summaryTrendStats: ['avg', 'p(50)', 'p(95)', 'p(99)', 'max'],
+};
+
+function tomorrow() {
+    const date = new Date();
+    date.setDate(date.getDate() + 1);
+    return date.toISOString().slice(0, 10);
+}
+
+export function setup() {
+    const ids = [];
+    const headers = { 'Content-Type': 'application/json' };
+    for (let i = 0; i < SEED_ORDERS; i++) {
+        const body = JSON.stringify({
+            clientName: `Load Client ${i}`,
+            deliveryDate: tomorrow(),
+            items: [{ fruitName: 'Apple', quantityInKilos: 1 + (i % 10) }],
+        });
+        const res = http.post(`${BASE_URL}/orders`, body, { headers });
+        if (res.status === 201) {
+            ids.push(res.json('id'));
+        }
+    }
+    return { ids };
+}
+
+export default function (data) {
+    const id = data.ids[Math.floor(Math.random() * data.ids.length)];
+
+    if (Math.random() < 0.8) {
+        const res = http.get(`${BASE_URL}/orders/${id}`, { tags: { name: 'GET /orders/{id}' } });
+        check(res, { 'get by id is 200': (r) => r.status === 200 });
+    } else {
+        const res = http.get(`${BASE_URL}/orders?clientName=Load%20Client%201`, { tags: { name: 'GET /orders' } });
+        check(res, { 'list is 200': (r) => r.status === 200 });
+    }
+}
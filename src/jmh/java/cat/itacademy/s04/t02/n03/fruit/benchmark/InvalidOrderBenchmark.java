@@ -0,0 +1,74 @@
+package cat.itacademy.s04.t02.n03.fruit.benchmark;
+
+import cat.itacademy.s04.t02.n03.fruit.dto.ErrorResponse;
+import cat.itacademy.s04.t02.n03.fruit.exception.BadRequestException;
+import cat.itacademy.s04.t02.n03.fruit.exception.GlobalExceptionHandler;
+import cat.itacademy.s04.t02.n03.fruit.valueobject.ClientName;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * A rejected order, from the failing value-object check to the {@link ErrorResponse} entity, thrown from about as
+ * deep a stack as a Spring MVC handler runs on. {@code withStackTrace} throws the same exception with its stack
+ * filled in, for comparison. Multiply {@code gc.alloc.rate.norm} by the rate of invalid requests to get the
+ * garbage they produce.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InvalidOrderBenchmark {
+
+    private static final int STACK_DEPTH = 120;
+
+    private GlobalExceptionHandler handler;
+    private MockHttpServletRequest request;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        handler = new GlobalExceptionHandler(new SimpleMeterRegistry());
+        request = new MockHttpServletRequest("POST", "/orders");
+    }
+
+    @Benchmark
+    public ResponseEntity<ErrorResponse> rejectClientName() {
+        return handle(() -> new ClientName(" "));
+    }
+
+    @Benchmark
+    public ResponseEntity<ErrorResponse> withStackTrace() {
+        return handle(() -> {
+            throw new BadRequestException("Client name cannot be empty");
+        });
+    }
+
+    private ResponseEntity<ErrorResponse> handle(Supplier<?> check) {
+        try {
+            atDepth(STACK_DEPTH, check);
+            throw new IllegalStateException("expected the check to fail");
+        } catch (BadRequestException e) {
+            return handler.handleBadRequest(e, request);
+        }
+    }
+
+    private static Object atDepth(int depth, Supplier<?> check) {
+        return depth == 0 ? check.get() : atDepth(depth - 1, check);
+    }
+}
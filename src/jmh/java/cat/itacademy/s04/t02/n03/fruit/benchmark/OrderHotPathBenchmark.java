@@ -0,0 +1,99 @@
+package cat.itacademy.s04.t02.n03.fruit.benchmark;
+
+import cat.itacademy.s04.t02.n03.fruit.dto.OrderCreateRequest;
+import cat.itacademy.s04.t02.n03.fruit.dto.OrderItemRequest;
+import cat.itacademy.s04.t02.n03.fruit.dto.OrderResponse;
+import cat.itacademy.s04.t02.n03.fruit.model.Order;
+import cat.itacademy.s04.t02.n03.fruit.service.mapper.OrderMapper;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDate;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Per-request work on the order write and read paths. Run with {@code mvn -Pjmh verify -DskipTests};
+ * the {@code gc} profiler reports {@code gc.alloc.rate.norm} (bytes per operation) next to each score.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderHotPathBenchmark {
+
+    @Param({"1", "10", "1000"})
+    private int items;
+
+    private OrderMapper mapper;
+    private ValidatorFactory validatorFactory;
+    private Validator validator;
+    private ObjectWriter writer;
+
+    private OrderCreateRequest request;
+    private Order order;
+    private OrderResponse response;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mapper = new OrderMapper();
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        validator = validatorFactory.getValidator();
+        writer = Jackson2ObjectMapperBuilder.json().build().writer();
+
+        request = new OrderCreateRequest("Alice", LocalDate.now().plusDays(2),
+                IntStream.range(0, items)
+                        .mapToObj(i -> new OrderItemRequest("Fruit " + i, 1 + i % 10))
+                        .toList());
+        order = mapper.toEntity(request);
+        order.setId("6650f1e2a1b2c3d4e5f60718");
+        order.setVersion(3L);
+        response = mapper.toResponse(order);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    public Order toEntity() {
+        return mapper.toEntity(request);
+    }
+
+    @Benchmark
+    public OrderResponse toResponse() {
+        return mapper.toResponse(order);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<OrderCreateRequest>> validateRequest() {
+        return validator.validate(request);
+    }
+
+    @Benchmark
+    public byte[] serializeResponse() throws JsonProcessingException {
+        return writer.writeValueAsBytes(response);
+    }
+}
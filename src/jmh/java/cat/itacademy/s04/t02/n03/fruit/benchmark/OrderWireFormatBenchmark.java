@@ -0,0 +1,117 @@
+package cat.itacademy.s04.t02.n03.fruit.benchmark;
+
+import cat.itacademy.s04.t02.n03.fruit.dto.OrderItemResponse;
+import cat.itacademy.s04.t02.n03.fruit.dto.OrderResponse;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Encoding cost and size of a {@code GET /orders} page of 100 orders as JSON, gzip-compressed JSON and CBOR.
+ * The encoded sizes are printed once per trial. Run with {@code mvn -Pjmh verify -DskipTests}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderWireFormatBenchmark {
+
+    private static final int PAGE_SIZE = 100;
+    private static final TypeReference<List<OrderResponse>> PAGE = new TypeReference<>() {
+    };
+
+    @Param({"5", "50"})
+    private int items;
+
+    private ObjectWriter jsonWriter;
+    private ObjectWriter cborWriter;
+    private ObjectReader jsonReader;
+    private ObjectReader cborReader;
+
+    private List<OrderResponse> page;
+    private byte[] json;
+    private byte[] cbor;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        ObjectMapper jsonMapper = Jackson2ObjectMapperBuilder.json().build();
+        ObjectMapper cborMapper = Jackson2ObjectMapperBuilder.json().factory(new CBORFactory()).build();
+        jsonWriter = jsonMapper.writerFor(PAGE);
+        cborWriter = cborMapper.writerFor(PAGE);
+        jsonReader = jsonMapper.readerFor(PAGE);
+        cborReader = cborMapper.readerFor(PAGE);
+
+        Random random = new Random(42);
+        page = IntStream.range(0, PAGE_SIZE)
+                .mapToObj(i -> new OrderResponse("6650f1e2a1b2c3d4e5f6%04x".formatted(i), "Client " + random.nextInt(1000),
+                        LocalDate.of(2026, 1, 1).plusDays(random.nextInt(365)),
+                        IntStream.range(0, items)
+                                .mapToObj(j -> new OrderItemResponse("Fruit " + random.nextInt(200), 1 + random.nextInt(500)))
+                                .toList()))
+                .toList();
+        json = jsonWriter.writeValueAsBytes(page);
+        cbor = cborWriter.writeValueAsBytes(page);
+
+        System.out.printf("%nitems=%d bytes: json=%d json+gzip=%d cbor=%d cbor+gzip=%d%n",
+                items, json.length, gzip(json).length, cbor.length, gzip(cbor).length);
+    }
+
+    @Benchmark
+    public byte[] writeJson() throws IOException {
+        return jsonWriter.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public byte[] writeGzippedJson() throws IOException {
+        return gzip(jsonWriter.writeValueAsBytes(page));
+    }
+
+    @Benchmark
+    public byte[] writeCbor() throws IOException {
+        return cborWriter.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public List<OrderResponse> readJson() throws IOException {
+        return jsonReader.readValue(json);
+    }
+
+    @Benchmark
+    public List<OrderResponse> readCbor() throws IOException {
+        return cborReader.readValue(cbor);
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,16 @@
+package cat.itacademy.s04.t02.n03.fruit.config;
+
+import cat.itacademy.s04.t02.n03.fruit.service.BusinessClock;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class BusinessClockConfig {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public BusinessClock businessClock(BusinessClockProperties properties) {
+        return BusinessClock.system(properties.zone());
+    }
+}
@@ -0,0 +1,18 @@
+package cat.itacademy.s04.t02.n03.fruit.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.ZoneId;
+
+/**
+ * {@code timeZone} decides when "tomorrow" starts for delivery dates; the JVM's default zone when unset.
+ */
+@ConfigurationProperties(prefix = "orders.business-clock")
+public record BusinessClockProperties(
+        ZoneId timeZone
+) {
+
+    public ZoneId zone() {
+        return timeZone != null ? timeZone : ZoneId.systemDefault();
+    }
+}
@@ -0,0 +1,42 @@
+package cat.itacademy.s04.t02.n03.fruit.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.boot.web.server.Compression;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+/**
+ * Lets callers send and accept {@code application/cbor} instead of JSON. The CBOR mapper is built from the
+ * same Boot-configured builder as the JSON one, so dates and other settings match.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class CborConfig {
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder,
+                                                                            ServerProperties serverProperties) {
+        int threshold = compressionThreshold(serverProperties);
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build()) {
+            @Override
+            protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage) throws IOException {
+                LengthAwareOutputMessage message = new LengthAwareOutputMessage(outputMessage, threshold);
+                super.writeInternal(object, type, message);
+                message.finish();
+            }
+        };
+    }
+
+    static int compressionThreshold(ServerProperties serverProperties) {
+        Compression compression = serverProperties.getCompression();
+        return compression.getEnabled() ? (int) compression.getMinResponseSize().toBytes() : 0;
+    }
+}
@@ -0,0 +1,10 @@
+package cat.itacademy.s04.t02.n03.fruit.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "orders.rollup")
+public record FruitDemandRollupProperties(
+        @DefaultValue("31") int chunkDays,
+        @DefaultValue("4") int parallelism
+) {}
@@ -0,0 +1,72 @@
+package cat.itacademy.s04.t02.n03.fruit.config;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Holds back the start of a response body until it reaches {@code threshold} bytes. A body that ends sooner is
+ * sent with a {@code Content-Length}, which Tomcat needs to apply {@code server.compression.min-response-size};
+ * without one it compresses every response. Longer bodies are streamed as before.
+ */
+final class LengthAwareOutputMessage implements HttpOutputMessage {
+
+    private final HttpOutputMessage target;
+    private final int threshold;
+    private ByteArrayOutputStream head;
+    private OutputStream body;
+
+    private final OutputStream stream = new OutputStream() {
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            if (body != null) {
+                body.write(bytes, offset, length);
+                return;
+            }
+            head.write(bytes, offset, length);
+            if (head.size() >= threshold) {
+                body = target.getBody();
+                head.writeTo(body);
+                head = null;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (body != null) {
+                body.flush();
+            }
+        }
+    };
+
+    LengthAwareOutputMessage(HttpOutputMessage target, int threshold) {
+        this.target = target;
+        this.threshold = threshold;
+        this.head = new ByteArrayOutputStream(Math.min(threshold, 1024));
+    }
+
+    @Override
+    public OutputStream getBody() {
+        return stream;
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+        return target.getHeaders();
+    }
+
+    void finish() throws IOException {
+        if (body == null) {
+            target.getHeaders().setContentLength(head.size());
+            head.writeTo(target.getBody());
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package cat.itacademy.s04.t02.n03.fruit.config;
+
+import cat.itacademy.s04.t02.n03.fruit.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Caps the number of concurrent Mongo calls and feeds each call's latency, wait included, to the load shedder. A
+ * call that returns a {@link Stream} keeps its permit until the stream is closed, since the cursor behind it is
+ * still reading, and the thread pulling from the stream counts as holding that permit meanwhile. Calls made while
+ * the current thread holds a permit run on it, so reading converted documents never waits on the bulkhead itself.
+ */
+@Component
+public class MongoBulkhead {
+
+    private final ThreadLocal<Boolean> holding = new ThreadLocal<>();
+    private final Semaphore permits;
+    private final int maxConcurrentCalls;
+    private final long maxWaitNanos;
+    private final Timer waitTimer;
+    private final Counter rejected;
+    private final MongoLoadShedder loadShedder;
+
+    public MongoBulkhead(MongoBulkheadProperties properties, MongoLoadShedder loadShedder, MeterRegistry meterRegistry) {
+        this.loadShedder = loadShedder;
+        this.maxConcurrentCalls = properties.maxConcurrentCalls();
+        this.permits = new Semaphore(maxConcurrentCalls, true);
+        this.maxWaitNanos = properties.maxWait().toNanos();
+
+        Gauge.builder("orders.mongo.bulkhead.permits.in-use", this, MongoBulkhead::inUse)
+                .description("Mongo calls currently holding a bulkhead permit")
+                .register(meterRegistry);
+        Gauge.builder("orders.mongo.bulkhead.permits.max", this, bulkhead -> bulkhead.maxConcurrentCalls)
+                .description("Configured maximum of concurrent Mongo calls")
+                .register(meterRegistry);
+        this.waitTimer = Timer.builder("orders.mongo.bulkhead.wait")
+                .description("Time spent waiting for a bulkhead permit")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.rejected = Counter.builder("orders.mongo.bulkhead.rejected")
+                .description("Mongo calls rejected after waiting too long for a permit")
+                .register(meterRegistry);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T execute(MongoCall<T> call) throws Throwable {
+        if (holdsPermit()) {
+            return call.proceed();
+        }
+        long start = System.nanoTime();
+        try {
+            acquire();
+            Runnable release = releaseOnce();
+            holding.set(Boolean.TRUE);
+            try {
+                T result = call.proceed();
+                if (result instanceof Stream<?> stream) {
+                    Runnable onClose = release;
+                    release = () -> { };
+                    return (T) holdingWhileConsumed(stream).onClose(onClose);
+                }
+                return result;
+            } finally {
+                holding.remove();
+                release.run();
+            }
+        } finally {
+            loadShedder.record(System.nanoTime() - start);
+        }
+    }
+
+    /** {@link #execute} for calls that only throw unchecked exceptions. */
+    public <T> T supply(Supplier<T> call) {
+        try {
+            return execute(call::get);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public void run(Runnable call) {
+        supply(() -> {
+            call.run();
+            return null;
+        });
+    }
+
+    /** Whether the current thread is inside a call that holds a permit. */
+    boolean holdsPermit() {
+        return holding.get() != null;
+    }
+
+    int inUse() {
+        return maxConcurrentCalls - permits.availablePermits();
+    }
+
+    private <E> Stream<E> holdingWhileConsumed(Stream<E> stream) {
+        return StreamSupport.stream(new HoldingSpliterator<>(stream.spliterator()), stream.isParallel())
+                .onClose(stream::close);
+    }
+
+    private <T> T onPermit(Supplier<T> work) {
+        if (holdsPermit()) {
+            return work.get();
+        }
+        holding.set(Boolean.TRUE);
+        try {
+            return work.get();
+        } finally {
+            holding.remove();
+        }
+    }
+
+    private Runnable releaseOnce() {
+        AtomicBoolean released = new AtomicBoolean();
+        return () -> {
+            if (released.compareAndSet(false, true)) {
+                permits.release();
+            }
+        };
+    }
+
+    private void acquire() {
+        long start = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+        if (!acquired) {
+            rejected.increment();
+            throw new ServiceUnavailableException("Database is busy, retry later");
+        }
+    }
+
+    @FunctionalInterface
+    public interface MongoCall<T> {
+        T proceed() throws Throwable;
+    }
+
+    /** Marks whichever thread pulls from a guarded stream as holding the stream's permit. */
+    private final class HoldingSpliterator<E> implements Spliterator<E> {
+
+        private final Spliterator<E> source;
+
+        HoldingSpliterator(Spliterator<E> source) {
+            this.source = source;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super E> action) {
+            return onPermit(() -> source.tryAdvance(action));
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super E> action) {
+            onPermit(() -> {
+                source.forEachRemaining(action);
+                return null;
+            });
+        }
+
+        @Override
+        public Spliterator<E> trySplit() {
+            Spliterator<E> split = source.trySplit();
+            return split == null ? null : new HoldingSpliterator<>(split);
+        }
+
+        @Override
+        public long estimateSize() {
+            return source.estimateSize();
+        }
+
+        @Override
+        public int characteristics() {
+            return source.characteristics();
+        }
+
+        @Override
+        public Comparator<? super E> getComparator() {
+            return source.getComparator();
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package cat.itacademy.s04.t02.n03.fruit.config;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+@Aspect
+@Component
+public class MongoBulkheadAspect {
+
+    private final MongoBulkhead bulkhead;
+
+    public MongoBulkheadAspect(MongoBulkhead bulkhead) {
+        this.bulkhead = bulkhead;
+    }
+
+    @Around("target(cat.itacademy.s04.t02.n03.fruit.repository.OrderRepository)"
+            + " || target(cat.itacademy.s04.t02.n03.fruit.repository.DailyFruitDemandRepository)")
+    public Object aroundMongoCall(ProceedingJoinPoint joinPoint) throws Throwable {
+        return bulkhead.execute(joinPoint::proceed);
+    }
+}
@@ -0,0 +1,12 @@
+package cat.itacademy.s04.t02.n03.fruit.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "orders.mongo.bulkhead")
+public record MongoBulkheadProperties(
+        @DefaultValue("100") int maxConcurrentCalls,
+        @DefaultValue("2s") Duration maxWait
+) {}
@@ -0,0 +1,64 @@
+package cat.itacademy.s04.t02.n03.fruit.config;
+
+import cat.itacademy.s04.t02.n03.fruit.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sheds {@code /orders} requests while MongoDB is slow. Every call through the bulkhead, its wait included,
+ * feeds an exponentially weighted moving average of its latency. Above the target latency a request is rejected
+ * with a probability that grows with the overload and with the request's cost, so expensive reads go first.
+ * Some requests always get through, which keeps the average moving once MongoDB recovers.
+ */
+@Component
+public class MongoLoadShedder {
+
+    private static final double MAX_SHED_PROBABILITY = 0.9;
+
+    private final OrderLoadSheddingProperties properties;
+    private final double targetNanos;
+    private final AtomicLong averageNanos = new AtomicLong(Double.doubleToRawLongBits(0));
+
+    public MongoLoadShedder(OrderLoadSheddingProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.targetNanos = properties.targetLatency().toNanos();
+
+        Gauge.builder("orders.mongo.latency.average", this, shedder -> shedder.averageNanos() / 1e6)
+                .description("Moving average of Mongo call latency in milliseconds")
+                .register(meterRegistry);
+    }
+
+    public void record(long nanos) {
+        double smoothing = properties.smoothing();
+        while (true) {
+            long current = averageNanos.get();
+            double average = Double.longBitsToDouble(current);
+            double next = average == 0 ? nanos : average + smoothing * (nanos - average);
+            if (averageNanos.compareAndSet(current, Double.doubleToRawLongBits(next))) {
+                return;
+            }
+        }
+    }
+
+    public void admit(int cost) {
+        if (!properties.enabled()) {
+            return;
+        }
+        double overload = (averageNanos() - targetNanos) / targetNanos;
+        if (overload <= 0) {
+            return;
+        }
+        double probability = Math.min(MAX_SHED_PROBABILITY, overload * cost);
+        if (ThreadLocalRandom.current().nextDouble() < probability) {
+            throw new ServiceUnavailableException("Database is overloaded, retry later", properties.retryAfter());
+        }
+    }
+
+    double averageNanos() {
+        return Double.longBitsToDouble(averageNanos.get());
+    }
+}
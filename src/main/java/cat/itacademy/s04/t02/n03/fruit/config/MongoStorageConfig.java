@@ -0,0 +1,36 @@
+package cat.itacademy.s04.t02.n03.fruit.config;
+
+import cat.itacademy.s04.t02.n03.fruit.repository.FruitCatalog;
+import cat.itacademy.s04.t02.n03.fruit.repository.OrderConverters;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.core.convert.DefaultDbRefResolver;
+import org.springframework.data.mongodb.core.convert.DefaultMongoTypeMapper;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+/**
+ * Compact document layout: short field names come from {@code @Field} on the entities, fruit names are
+ * dictionary-encoded by {@link OrderConverters}, and no {@code _class} hint is stored since no collection
+ * holds more than one type.
+ */
+@Configuration
+public class MongoStorageConfig {
+
+    @Bean
+    public MongoCustomConversions mongoCustomConversions(FruitCatalog fruitCatalog) {
+        return new MongoCustomConversions(OrderConverters.all(fruitCatalog));
+    }
+
+    @Bean
+    public MappingMongoConverter mappingMongoConverter(MongoDatabaseFactory databaseFactory,
+                                                       MongoMappingContext mappingContext,
+                                                       MongoCustomConversions conversions) {
+        MappingMongoConverter converter = new MappingMongoConverter(new DefaultDbRefResolver(databaseFactory), mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.setTypeMapper(new DefaultMongoTypeMapper(null));
+        return converter;
+    }
+}
@@ -0,0 +1,47 @@
+package cat.itacademy.s04.t02.n03.fruit.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.MongoClient;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.mongo.MongoClientFactory;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.observability.ContextProviderFactory;
+import org.springframework.data.mongodb.observability.MongoObservationCommandListener;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+public class ObservabilityConfig {
+
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    public MappingJackson2HttpMessageConverter mappingJackson2HttpMessageConverter(ObjectMapper objectMapper,
+                                                                                   ObservationRegistry observationRegistry,
+                                                                                   ServerProperties serverProperties) {
+        return new ObservedJsonHttpMessageConverter(objectMapper, observationRegistry,
+                CborConfig.compressionThreshold(serverProperties));
+    }
+
+    /**
+     * The blocking client as Spring Boot builds it, plus command observations. They are not registered as a
+     * {@link MongoClientSettingsBuilderCustomizer}, which would reach the reactive client too: its commands carry
+     * no observation in their request context, and the listener fails on every one of them.
+     */
+    @Bean
+    public MongoClient mongo(ObjectProvider<MongoClientSettingsBuilderCustomizer> builderCustomizers,
+                             MongoClientSettings settings, ObservationRegistry observationRegistry) {
+        List<MongoClientSettingsBuilderCustomizer> customizers = new ArrayList<>(builderCustomizers.orderedStream().toList());
+        customizers.add(builder -> builder
+                .contextProvider(ContextProviderFactory.create(observationRegistry))
+                .addCommandListener(new MongoObservationCommandListener(observationRegistry)));
+        return new MongoClientFactory(customizers).createMongoClient(settings);
+    }
+}
@@ -0,0 +1,52 @@
+package cat.itacademy.s04.t02.n03.fruit.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+/**
+ * Observes Jackson reads and writes of request and response bodies as {@code orders.http.json}, tagged with the
+ * direction and the body's declared type, which yields both a timer and a span. Streamed NDJSON responses write
+ * through their own generator and are not included. Bodies shorter than {@code compressionThreshold} are sent
+ * with a {@code Content-Length} so that they are not compressed.
+ */
+public class ObservedJsonHttpMessageConverter extends MappingJackson2HttpMessageConverter {
+
+    private final ObservationRegistry observationRegistry;
+    private final int compressionThreshold;
+
+    public ObservedJsonHttpMessageConverter(ObjectMapper objectMapper, ObservationRegistry observationRegistry,
+                                            int compressionThreshold) {
+        super(objectMapper);
+        this.observationRegistry = observationRegistry;
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    @Override
+    public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) throws IOException {
+        return observation("read", type).observeChecked(() -> super.read(type, contextClass, inputMessage));
+    }
+
+    @Override
+    protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage) throws IOException {
+        LengthAwareOutputMessage message = new LengthAwareOutputMessage(outputMessage, compressionThreshold);
+        observation("write", type != null ? type : object.getClass())
+                .observeChecked(() -> super.writeInternal(object, type, message));
+        message.finish();
+    }
+
+    private Observation observation(String direction, Type type) {
+        String typeName = TypeFactory.rawClass(type).getSimpleName();
+        return Observation.createNotStarted("orders.http.json", observationRegistry)
+                .contextualName("json " + direction)
+                .lowCardinalityKeyValue("direction", direction)
+                .lowCardinalityKeyValue("type", typeName);
+    }
+}
@@ -0,0 +1,33 @@
+package cat.itacademy.s04.t02.n03.fruit.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class OrderAdmissionConfig implements WebMvcConfigurer {
+
+    private final OrderRateLimitProperties rateLimitProperties;
+    private final OrderLoadSheddingProperties loadSheddingProperties;
+    private final OrderRateLimiter rateLimiter;
+    private final MongoLoadShedder loadShedder;
+
+    public OrderAdmissionConfig(OrderRateLimitProperties rateLimitProperties,
+                                OrderLoadSheddingProperties loadSheddingProperties,
+                                OrderRateLimiter rateLimiter, MongoLoadShedder loadShedder) {
+        this.rateLimitProperties = rateLimitProperties;
+        this.loadSheddingProperties = loadSheddingProperties;
+        this.rateLimiter = rateLimiter;
+        this.loadShedder = loadShedder;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        if (rateLimitProperties.enabled() || loadSheddingProperties.enabled()) {
+            registry.addInterceptor(new OrderAdmissionInterceptor(rateLimitProperties, rateLimiter, loadShedder))
+                    .addPathPatterns("/orders", "/orders/**");
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package cat.itacademy.s04.t02.n03.fruit.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Admits a request to an {@code /orders} handler, or rejects it through {@code GlobalExceptionHandler}: first
+ * against MongoDB load, so shed requests do not use up the client's tokens, then against the client's rate limit.
+ * Clients are told apart by their remote address: a client-supplied key is not checked against known clients, so
+ * keying on it would give a fresh bucket to every new value.
+ */
+public class OrderAdmissionInterceptor implements HandlerInterceptor {
+
+    private final OrderRateLimitProperties properties;
+    private final OrderRateLimiter rateLimiter;
+    private final MongoLoadShedder loadShedder;
+
+    public OrderAdmissionInterceptor(OrderRateLimitProperties properties, OrderRateLimiter rateLimiter,
+                                     MongoLoadShedder loadShedder) {
+        this.properties = properties;
+        this.rateLimiter = rateLimiter;
+        this.loadShedder = loadShedder;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!(handler instanceof HandlerMethod method)) {
+            return true;
+        }
+        int cost = properties.cost(method.getMethod().getName());
+        loadShedder.admit(cost);
+        rateLimiter.acquire(request.getRemoteAddr(), cost);
+        return true;
+    }
+}
@@ -0,0 +1,15 @@
+package cat.itacademy.s04.t02.n03.fruit.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.time.Period;
+
+@ConfigurationProperties(prefix = "orders.archive")
+public record OrderArchiveProperties(
+        @DefaultValue("180d") Period retention,
+        @DefaultValue("500") int batchSize,
+        @DefaultValue("200ms") Duration batchDelay,
+        @DefaultValue("5m") Duration leaseTime
+) {}
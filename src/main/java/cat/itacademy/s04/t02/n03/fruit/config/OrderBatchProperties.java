@@ -0,0 +1,14 @@
+package cat.itacademy.s04.t02.n03.fruit.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Limits on a {@code POST /orders/batch} body, checked while it is read.
+ */
+@ConfigurationProperties(prefix = "orders.batch")
+public record OrderBatchProperties(
+        @DefaultValue("10000") int maxOrders,
+        @DefaultValue("16MB") DataSize maxBodySize
+) {}
@@ -0,0 +1,12 @@
+package cat.itacademy.s04.t02.n03.fruit.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "orders.cache")
+public record OrderCacheProperties(
+        @DefaultValue("10000") long maxSize,
+        @DefaultValue("30s") Duration ttl
+) {}
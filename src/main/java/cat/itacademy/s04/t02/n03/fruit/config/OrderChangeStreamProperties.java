@@ -0,0 +1,14 @@
+package cat.itacademy.s04.t02.n03.fruit.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "orders.cache.change-stream")
+public record OrderChangeStreamProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("orders-cache") String checkpointId,
+        @DefaultValue("1s") Duration checkpointInterval,
+        @DefaultValue("5s") Duration retryDelay
+) {}
@@ -0,0 +1,13 @@
+package cat.itacademy.s04.t02.n03.fruit.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "orders.idempotency")
+public record OrderIdempotencyProperties(
+        @DefaultValue("24h") Duration ttl,
+        @DefaultValue("10000") long cacheSize,
+        @DefaultValue("10s") Duration inProgressTimeout
+) {}
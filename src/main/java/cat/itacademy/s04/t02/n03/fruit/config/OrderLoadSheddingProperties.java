@@ -0,0 +1,14 @@
+package cat.itacademy.s04.t02.n03.fruit.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "orders.load-shedding")
+public record OrderLoadSheddingProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("200ms") Duration targetLatency,
+        @DefaultValue("0.1") double smoothing,
+        @DefaultValue("2s") Duration retryAfter
+) {}
@@ -0,0 +1,24 @@
+package cat.itacademy.s04.t02.n03.fruit.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.util.Map;
+
+/**
+ * Token bucket per client address on {@code /orders}. {@code costs} maps an {@code OrderController} handler method name to
+ * the tokens a call takes; handlers that are not listed cost one.
+ */
+@ConfigurationProperties(prefix = "orders.rate-limit")
+public record OrderRateLimitProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("100") int capacity,
+        @DefaultValue("50") int refillPerSecond,
+        @DefaultValue("100000") long maxClients,
+        @DefaultValue Map<String, Integer> costs
+) {
+
+    public int cost(String handler) {
+        return costs.getOrDefault(handler, 1);
+    }
+}
@@ -0,0 +1,69 @@
+package cat.itacademy.s04.t02.n03.fruit.config;
+
+import cat.itacademy.s04.t02.n03.fruit.exception.TooManyRequestsException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket per client, kept as the time at which the bucket would be full again (GCRA). Taking tokens is a
+ * single compare-and-set on that client's {@link AtomicLong}, so clients never contend with each other and a
+ * client's own requests never block. A bucket that has been idle long enough to refill is dropped.
+ */
+@Component
+public class OrderRateLimiter {
+
+    private final boolean enabled;
+    private final int capacity;
+    private final long nanosPerToken;
+    private final long burstNanos;
+    private final LongSupplier ticker;
+    private final long origin;
+    private final Cache<String, AtomicLong> buckets;
+
+    @Autowired
+    public OrderRateLimiter(OrderRateLimitProperties properties) {
+        this(properties, System::nanoTime);
+    }
+
+    OrderRateLimiter(OrderRateLimitProperties properties, LongSupplier ticker) {
+        this.enabled = properties.enabled();
+        this.capacity = properties.capacity();
+        this.nanosPerToken = TimeUnit.SECONDS.toNanos(1) / properties.refillPerSecond();
+        this.burstNanos = capacity * nanosPerToken;
+        this.ticker = ticker;
+        this.origin = ticker.getAsLong();
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(properties.maxClients())
+                .expireAfterAccess(Duration.ofNanos(burstNanos))
+                .ticker(ticker::getAsLong)
+                .build();
+    }
+
+    public void acquire(String client, int cost) {
+        if (!enabled) {
+            return;
+        }
+        AtomicLong fullAt = buckets.get(client, key -> new AtomicLong());
+        long increment = Math.min(cost, capacity) * nanosPerToken;
+
+        while (true) {
+            long now = ticker.getAsLong() - origin;
+            long current = fullAt.get();
+            long next = Math.max(current, now) + increment;
+            long excess = next - now - burstNanos;
+            if (excess > 0) {
+                throw new TooManyRequestsException("Rate limit exceeded", Duration.ofNanos(excess));
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return;
+            }
+        }
+    }
+}
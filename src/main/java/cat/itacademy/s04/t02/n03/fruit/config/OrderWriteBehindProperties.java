@@ -0,0 +1,20 @@
+package cat.itacademy.s04.t02.n03.fruit.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "orders.write-behind")
+public record OrderWriteBehindProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("data/write-behind") Path directory,
+        @DefaultValue("64MB") DataSize segmentSize,
+        @DefaultValue("true") boolean fsync,
+        @DefaultValue("500") int batchSize,
+        @DefaultValue("50ms") Duration flushInterval,
+        @DefaultValue("1s") Duration retryDelay,
+        @DefaultValue("5s") Duration awaitTimeout
+) {}
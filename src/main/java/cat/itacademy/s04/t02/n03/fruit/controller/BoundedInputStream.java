@@ -0,0 +1,53 @@
+package cat.itacademy.s04.t02.n03.fruit.controller;
+
+import cat.itacademy.s04.t02.n03.fruit.exception.PayloadTooLargeException;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Fails with {@link PayloadTooLargeException} as soon as more than {@code maxBytes} have been read.
+ */
+final class BoundedInputStream extends FilterInputStream {
+
+    private final long maxBytes;
+    private long read;
+
+    BoundedInputStream(InputStream in, long maxBytes) {
+        super(in);
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b != -1) {
+            count(1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        int n = super.read(buffer, offset, length);
+        if (n > 0) {
+            count(n);
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        count(skipped);
+        return skipped;
+    }
+
+    private void count(long bytes) {
+        read += bytes;
+        if (read > maxBytes) {
+            throw new PayloadTooLargeException("Batch body exceeds " + maxBytes + " bytes");
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package cat.itacademy.s04.t02.n03.fruit.controller;
+
+import cat.itacademy.s04.t02.n03.fruit.dto.FruitDemandRollupReport;
+import cat.itacademy.s04.t02.n03.fruit.service.FruitDemandRollupJob;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+@Component
+@Endpoint(id = "demandrollup")
+public class FruitDemandRollupEndpoint {
+
+    private final FruitDemandRollupJob job;
+
+    public FruitDemandRollupEndpoint(FruitDemandRollupJob job) {
+        this.job = job;
+    }
+
+    @ReadOperation
+    public FruitDemandRollupReport verify() {
+        return job.verify();
+    }
+
+    @WriteOperation
+    public FruitDemandRollupReport rebuild() {
+        return job.rebuild();
+    }
+}
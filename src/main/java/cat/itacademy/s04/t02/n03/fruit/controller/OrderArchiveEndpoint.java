@@ -0,0 +1,29 @@
+package cat.itacademy.s04.t02.n03.fruit.controller;
+
+import cat.itacademy.s04.t02.n03.fruit.dto.OrderArchiveReport;
+import cat.itacademy.s04.t02.n03.fruit.service.OrderArchiver;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+@Component
+@Endpoint(id = "orderarchive")
+public class OrderArchiveEndpoint {
+
+    private final OrderArchiver archiver;
+
+    public OrderArchiveEndpoint(OrderArchiver archiver) {
+        this.archiver = archiver;
+    }
+
+    @ReadOperation
+    public OrderArchiveReport status() {
+        return archiver.status();
+    }
+
+    @WriteOperation
+    public OrderArchiveReport archive() {
+        return archiver.archive();
+    }
+}
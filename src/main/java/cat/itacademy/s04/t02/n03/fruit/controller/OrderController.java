@@ -1,49 +1,372 @@
 package cat.itacademy.s04.t02.n03.fruit.controller;
 
+import cat.itacademy.s04.t02.n03.fruit.config.OrderBatchProperties;
+import cat.itacademy.s04.t02.n03.fruit.config.OrderWriteBehindProperties;
+import cat.itacademy.s04.t02.n03.fruit.dto.FruitDemand;
+import cat.itacademy.s04.t02.n03.fruit.dto.OrderBatchItemResult;
 import cat.itacademy.s04.t02.n03.fruit.dto.OrderCreateRequest;
+import cat.itacademy.s04.t02.n03.fruit.dto.OrderFilter;
+import cat.itacademy.s04.t02.n03.fruit.dto.OrderPage;
+import cat.itacademy.s04.t02.n03.fruit.dto.OrderPatchRequest;
+import cat.itacademy.s04.t02.n03.fruit.dto.OrderProjection;
 import cat.itacademy.s04.t02.n03.fruit.dto.OrderResponse;
+import cat.itacademy.s04.t02.n03.fruit.exception.BadRequestException;
+import cat.itacademy.s04.t02.n03.fruit.exception.NotFoundException;
+import cat.itacademy.s04.t02.n03.fruit.exception.PayloadTooLargeException;
 import cat.itacademy.s04.t02.n03.fruit.service.OrderService;
+import cat.itacademy.s04.t02.n03.fruit.service.idempotency.IdempotentResponse;
+import cat.itacademy.s04.t02.n03.fruit.service.idempotency.OrderIdempotency;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.observation.annotation.Observed;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.ConstraintViolationException;
 import jakarta.validation.Valid;
+import jakarta.validation.Validator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 @RestController
+@Observed(name = "orders.controller")
 @RequestMapping("/orders")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class OrderController {
+
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    static final String IDEMPOTENT_REPLAYED_HEADER = "Idempotent-Replayed";
+    static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
+    static final String MERGE_PATCH_JSON_VALUE = "application/merge-patch+json";
+    private static final List<String> PATCH_FIELDS = List.of("clientName", "deliveryDate", "items");
+    private static final OrderProjection VERSION_ONLY = new OrderProjection(false, false, false);
+
     private final OrderService orderService;
+    private final OrderIdempotency idempotency;
+    private final Validator validator;
+    private final boolean writeBehind;
+    private final OrderBatchProperties batchProperties;
+    private final ObjectWriter ndjsonWriter;
+    private final ObjectReader orderReader;
+    private final ObjectReader patchReader;
 
-    public OrderController(OrderService orderService) {
+    public OrderController(OrderService orderService, OrderIdempotency idempotency, Validator validator,
+                           ObjectMapper objectMapper, OrderWriteBehindProperties writeBehindProperties,
+                           OrderBatchProperties batchProperties) {
         this.orderService = orderService;
+        this.idempotency = idempotency;
+        this.validator = validator;
+        this.writeBehind = writeBehindProperties.enabled();
+        this.batchProperties = batchProperties;
+        this.ndjsonWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.orderReader = objectMapper.readerFor(OrderCreateRequest.class);
+        this.patchReader = objectMapper.readerFor(OrderPatchRequest.class);
     }
 
     @PostMapping
     public ResponseEntity<OrderResponse> createOrder(@Valid @RequestBody OrderCreateRequest request) {
-        OrderResponse response = orderService.createOrder(request);
+        OrderResponse response = create(request);
+
+        return created(response).body(response);
+    }
+
+    @PostMapping(headers = IDEMPOTENCY_KEY_HEADER)
+    public ResponseEntity<OrderResponse> createOrderIdempotently(@RequestHeader(IDEMPOTENCY_KEY_HEADER) String idempotencyKey,
+                                                                 @RequestBody OrderCreateRequest request) {
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+            throw new BadRequestException("Idempotency-Key must be 1 to " + MAX_IDEMPOTENCY_KEY_LENGTH + " characters");
+        }
+
+        IdempotentResponse result = idempotency.execute(idempotencyKey, request, () -> {
+            Set<ConstraintViolation<OrderCreateRequest>> violations = validator.validate(request);
+            if (!violations.isEmpty()) {
+                throw new ConstraintViolationException(violations);
+            }
+            return create(request);
+        });
+
+        OrderResponse response = result.response();
+        return created(response)
+                .header(IDEMPOTENT_REPLAYED_HEADER, String.valueOf(result.replayed()))
+                .body(response);
+    }
+
+    private OrderResponse create(OrderCreateRequest request) {
+        return writeBehind ? orderService.acceptOrder(request) : orderService.createOrder(request);
+    }
+
+    private ResponseEntity.BodyBuilder created(OrderResponse response) {
+        ResponseEntity.BodyBuilder builder = writeBehind
+                ? ResponseEntity.accepted().location(URI.create("/orders/" + response.id()))
+                : ResponseEntity.status(HttpStatus.CREATED);
+        return builder.eTag(OrderETags.of(response.version()));
+    }
+
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<OrderBatchItemResult>> createOrders(InputStream body) throws IOException {
+        List<OrderCreateRequest> requests = new ArrayList<>();
+
+        try (JsonParser parser = orderReader.createParser(bounded(body))) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new BadRequestException("Batch must be a JSON array of orders");
+            }
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                addToBatch(requests, readBatchOrder(orderReader.readTree(parser)));
+            }
+        } catch (JsonProcessingException e) {
+            throw new BadRequestException("Malformed batch");
+        }
 
-        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        return ResponseEntity.ok(orderService.createOrders(requests));
+    }
+
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<List<OrderBatchItemResult>> createOrdersFromNdjson(InputStream body) throws IOException {
+        List<OrderCreateRequest> requests = new ArrayList<>();
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(bounded(body), StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (!line.isBlank()) {
+                addToBatch(requests, readNdjsonOrder(line));
+            }
+        }
+
+        return ResponseEntity.ok(orderService.createOrders(requests));
+    }
+
+    private InputStream bounded(InputStream body) {
+        return new BoundedInputStream(body, batchProperties.maxBodySize().toBytes());
+    }
+
+    private void addToBatch(List<OrderCreateRequest> requests, OrderCreateRequest request) {
+        if (requests.size() == batchProperties.maxOrders()) {
+            throw new PayloadTooLargeException("Batch exceeds " + batchProperties.maxOrders() + " orders");
+        }
+        requests.add(request);
     }
 
     @GetMapping
-    public ResponseEntity<List<OrderResponse>> getAllOrders() {
-        return ResponseEntity.ok(orderService.getAllOrders());
+    public ResponseEntity<List<OrderResponse>> getAllOrders(@RequestParam(required = false) String clientName,
+                                                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate deliveryFrom,
+                                                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate deliveryTo,
+                                                            @RequestParam(required = false) String fruitName,
+                                                            @RequestParam(required = false) String cursor,
+                                                            @RequestParam(defaultValue = "100") int limit,
+                                                            @RequestParam(required = false) String fields,
+                                                            @RequestParam(defaultValue = "false") boolean includeArchived) {
+        OrderFilter filter = new OrderFilter(clientName, deliveryFrom, deliveryTo, fruitName, includeArchived);
+        OrderPage page = orderService.getAllOrders(filter, cursor, limit, OrderProjection.parse(fields));
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        return response.body(page.orders());
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<List<OrderResponse>> searchOrders(@RequestParam(required = false) String clientName,
+                                                            @RequestParam(required = false) String fruitName,
+                                                            @RequestParam(required = false) String cursor,
+                                                            @RequestParam(defaultValue = "20") int limit) {
+        OrderPage page = orderService.searchOrders(clientName, fruitName, cursor, limit);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        return response.body(page.orders());
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllOrders(@RequestParam(required = false) String clientName,
+                                                                 @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate deliveryFrom,
+                                                                 @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate deliveryTo,
+                                                                 @RequestParam(required = false) String fruitName,
+                                                                 @RequestParam(required = false) String fields,
+                                                                 @RequestParam(defaultValue = "false") boolean includeArchived) {
+        OrderFilter filter = new OrderFilter(clientName, deliveryFrom, deliveryTo, fruitName, includeArchived);
+        OrderProjection projection = OrderProjection.parse(fields);
+
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = ndjsonWriter.createGenerator(out)) {
+                generator.setRootValueSeparator(null);
+                orderService.streamAllOrders(filter, projection, order -> writeLine(generator, order));
+            }
+        };
+
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    @GetMapping("/analytics/fruit-demand")
+    public ResponseEntity<StreamingResponseBody> getFruitDemand(@RequestParam(required = false) String clientName,
+                                                                @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate deliveryFrom,
+                                                                @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate deliveryTo,
+                                                                @RequestParam(required = false) String fruitName) {
+        OrderFilter filter = new OrderFilter(clientName, deliveryFrom, deliveryTo, fruitName);
+
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = ndjsonWriter.createGenerator(out)) {
+                generator.writeStartArray();
+                orderService.streamFruitDemand(filter, demand -> writeValue(generator, demand));
+                generator.writeEndArray();
+            }
+        };
+
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    @GetMapping(value = "/analytics/fruit-demand", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamFruitDemand(@RequestParam(required = false) String clientName,
+                                                                   @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate deliveryFrom,
+                                                                   @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate deliveryTo,
+                                                                   @RequestParam(required = false) String fruitName) {
+        OrderFilter filter = new OrderFilter(clientName, deliveryFrom, deliveryTo, fruitName);
+
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = ndjsonWriter.createGenerator(out)) {
+                generator.setRootValueSeparator(null);
+                orderService.streamFruitDemand(filter, demand -> writeLine(generator, demand));
+            }
+        };
+
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<OrderResponse> getOrderById(@PathVariable String id) {
-        return ResponseEntity.ok(orderService.getOrderById(id));
+    public ResponseEntity<OrderResponse> getOrderById(@PathVariable String id,
+                                                      @RequestParam(required = false) String fields,
+                                                      WebRequest webRequest) {
+        OrderResponse response = orderService.getOrderById(id, OrderProjection.parse(fields));
+
+        String eTag = OrderETags.of(response.version());
+        if (eTag != null && webRequest.checkNotModified(eTag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(eTag).body(response);
     }
 
     @PutMapping("/{id}")
-    public ResponseEntity<OrderResponse> updateOrder(@PathVariable String id, @Valid @RequestBody OrderCreateRequest request) {
-        return ResponseEntity.ok(orderService.updateOrder(id, request));
+    public ResponseEntity<OrderResponse> updateOrder(@PathVariable String id,
+                                                     @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                     @Valid @RequestBody OrderCreateRequest request) {
+        OrderResponse response;
+        try {
+            response = orderService.updateOrder(id, request, OrderETags.expectedVersion(ifMatch, () -> currentVersion(id)));
+        } catch (NotFoundException e) {
+            throw OrderETags.missing(ifMatch, e);
+        }
+
+        return ResponseEntity.ok().eTag(OrderETags.of(response.version())).body(response);
+    }
+
+    @PatchMapping(value = "/{id}", consumes = {MERGE_PATCH_JSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<OrderResponse> patchOrder(@PathVariable String id,
+                                                    @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                    @RequestBody ObjectNode body) {
+        OrderResponse response;
+        try {
+            response = orderService.patchOrder(id, readPatch(body), OrderETags.expectedVersion(ifMatch, () -> currentVersion(id)));
+        } catch (NotFoundException e) {
+            throw OrderETags.missing(ifMatch, e);
+        }
+
+        return ResponseEntity.ok().eTag(OrderETags.of(response.version())).body(response);
     }
 
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> deleteOrder(@PathVariable String id) {
-        orderService.deleteOrder(id);
+    public ResponseEntity<Void> deleteOrder(@PathVariable String id,
+                                            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        try {
+            orderService.deleteOrder(id, OrderETags.expectedVersion(ifMatch, () -> currentVersion(id)));
+        } catch (NotFoundException e) {
+            throw OrderETags.missing(ifMatch, e);
+        }
         return ResponseEntity.noContent().build();
     }
+
+    private Long currentVersion(String id) {
+        return orderService.getOrderById(id, VERSION_ONLY).version();
+    }
+
+    /**
+     * In a merge patch {@code null} removes a member, and none of an order's top-level fields can be removed. The
+     * record cannot tell an explicit {@code null} from an absent field, so the tree is checked before binding.
+     */
+    private OrderPatchRequest readPatch(ObjectNode body) {
+        for (String field : PATCH_FIELDS) {
+            if (body.has(field) && body.get(field).isNull()) {
+                throw new BadRequestException(field + " cannot be null");
+            }
+        }
+        try {
+            return patchReader.readValue(body);
+        } catch (IOException e) {
+            throw new BadRequestException("Malformed patch");
+        }
+    }
+
+    /** Binds one element of a JSON-array batch; an element that is not an order is reported like a malformed line. */
+    private OrderCreateRequest readBatchOrder(JsonNode element) {
+        if (element.isNull()) {
+            return null;
+        }
+        try {
+            return orderReader.readValue(element);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private OrderCreateRequest readNdjsonOrder(String line) {
+        try {
+            return orderReader.readValue(line);
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    private void writeLine(JsonGenerator generator, Object value) {
+        writeValue(generator, value);
+        try {
+            generator.writeRaw('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeValue(JsonGenerator generator, Object value) {
+        try {
+            ndjsonWriter.writeValue(generator, value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 }
@@ -0,0 +1,89 @@
+package cat.itacademy.s04.t02.n03.fruit.controller;
+
+import cat.itacademy.s04.t02.n03.fruit.exception.NotFoundException;
+import cat.itacademy.s04.t02.n03.fruit.exception.PreconditionFailedException;
+import org.springframework.http.ETag;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Order versions as entity tags. {@code If-Match} is {@code *} or a comma-separated list of tags (RFC 9110). It
+ * uses the strong comparison, so a weak tag never matches, and {@code If-Match: *} only requires the order to exist.
+ */
+final class OrderETags {
+
+    private static final String ANY = "*";
+
+    private OrderETags() {
+    }
+
+    static String of(Long version) {
+        return version == null ? null : "\"" + version + "\"";
+    }
+
+    /**
+     * The version {@code ifMatch} requires, or {@code null} when any version will do. A list of several versions is
+     * checked against {@code currentVersion}, which is only read then; the write is guarded by the one that matched.
+     */
+    static Long expectedVersion(String ifMatch, Supplier<Long> currentVersion) {
+        List<Long> versions = versions(ifMatch);
+        if (versions.size() < 2) {
+            return versions.isEmpty() ? null : versions.getFirst();
+        }
+        return listed(versions, currentVersion.get());
+    }
+
+    /** The versions named by the strong tags of {@code ifMatch}, or none when any version will do. */
+    static List<Long> versions(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || matchesAny(ifMatch)) {
+            return List.of();
+        }
+
+        List<ETag> tags = ETag.parse(ifMatch);
+        if (!tags.isEmpty() && tags.stream().allMatch(ETag::weak)) {
+            throw new PreconditionFailedException("If-Match requires a strong entity tag");
+        }
+        List<Long> versions = tags.stream()
+                .filter(tag -> !tag.weak())
+                .map(OrderETags::version)
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+        if (versions.isEmpty()) {
+            throw new PreconditionFailedException("Order has been modified");
+        }
+        return versions;
+    }
+
+    /** {@code current} when it is one of {@code versions}, which a write must then find unchanged. */
+    static Long listed(List<Long> versions, Long current) {
+        if (current == null || !versions.contains(current)) {
+            throw new PreconditionFailedException("Order has been modified");
+        }
+        return current;
+    }
+
+    /**
+     * What a write guarded by {@code ifMatch} answers when the order is missing: a failed precondition when the
+     * header asked for any current version, and {@code notFound} otherwise.
+     */
+    static RuntimeException missing(String ifMatch, NotFoundException notFound) {
+        return ifMatch != null && matchesAny(ifMatch)
+                ? new PreconditionFailedException("Order does not exist")
+                : notFound;
+    }
+
+    private static boolean matchesAny(String ifMatch) {
+        return ANY.equals(ifMatch.trim());
+    }
+
+    private static Long version(ETag tag) {
+        try {
+            return Long.valueOf(tag.tag());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package cat.itacademy.s04.t02.n03.fruit.controller;
+
+import cat.itacademy.s04.t02.n03.fruit.dto.OrderSchemaMigrationReport;
+import cat.itacademy.s04.t02.n03.fruit.service.OrderSchemaMigration;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+@Component
+@Endpoint(id = "ordermigration")
+public class OrderSchemaMigrationEndpoint {
+
+    private final OrderSchemaMigration migration;
+
+    public OrderSchemaMigrationEndpoint(OrderSchemaMigration migration) {
+        this.migration = migration;
+    }
+
+    @ReadOperation
+    public OrderSchemaMigrationReport status() {
+        return migration.status();
+    }
+
+    @WriteOperation
+    public OrderSchemaMigrationReport migrate() {
+        return migration.migrate();
+    }
+}
@@ -0,0 +1,90 @@
+package cat.itacademy.s04.t02.n03.fruit.controller;
+
+import cat.itacademy.s04.t02.n03.fruit.dto.OrderCreateRequest;
+import cat.itacademy.s04.t02.n03.fruit.dto.OrderFilter;
+import cat.itacademy.s04.t02.n03.fruit.dto.OrderResponse;
+import cat.itacademy.s04.t02.n03.fruit.exception.NotFoundException;
+import cat.itacademy.s04.t02.n03.fruit.service.ReactiveOrderService;
+import jakarta.validation.Valid;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/orders")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveOrderController {
+
+    private final ReactiveOrderService orderService;
+
+    public ReactiveOrderController(ReactiveOrderService orderService) {
+        this.orderService = orderService;
+    }
+
+    @PostMapping
+    public Mono<ResponseEntity<OrderResponse>> createOrder(@Valid @RequestBody OrderCreateRequest request) {
+        return orderService.createOrder(request)
+                .map(response -> ResponseEntity.status(HttpStatus.CREATED)
+                        .eTag(OrderETags.of(response.version()))
+                        .body(response));
+    }
+
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<OrderResponse> getAllOrders(@RequestParam(required = false) String clientName,
+                                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate deliveryFrom,
+                                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate deliveryTo,
+                                            @RequestParam(required = false) String fruitName) {
+        return orderService.getAllOrders(new OrderFilter(clientName, deliveryFrom, deliveryTo, fruitName));
+    }
+
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<OrderResponse>> getOrderById(@PathVariable String id, ServerWebExchange exchange) {
+        return orderService.getOrderById(id).map(response -> {
+            String eTag = OrderETags.of(response.version());
+            if (eTag != null && exchange.checkNotModified(eTag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+            }
+            return ResponseEntity.ok().eTag(eTag).body(response);
+        });
+    }
+
+    @PutMapping("/{id}")
+    public Mono<ResponseEntity<OrderResponse>> updateOrder(@PathVariable String id,
+                                                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                           @Valid @RequestBody OrderCreateRequest request) {
+        return expectedVersion(id, ifMatch)
+                .flatMap(expected -> orderService.updateOrder(id, request, expected.orElse(null)))
+                .onErrorMap(NotFoundException.class, e -> OrderETags.missing(ifMatch, e))
+                .map(response -> ResponseEntity.ok().eTag(OrderETags.of(response.version())).body(response));
+    }
+
+    @DeleteMapping("/{id}")
+    public Mono<ResponseEntity<Void>> deleteOrder(@PathVariable String id,
+                                                  @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return expectedVersion(id, ifMatch)
+                .flatMap(expected -> orderService.deleteOrder(id, expected.orElse(null)))
+                .onErrorMap(NotFoundException.class, e -> OrderETags.missing(ifMatch, e))
+                .then(Mono.just(ResponseEntity.noContent().build()));
+    }
+
+    /** Like {@link OrderETags#expectedVersion}, reading the current version only for a list of several. */
+    private Mono<Optional<Long>> expectedVersion(String id, String ifMatch) {
+        List<Long> versions = OrderETags.versions(ifMatch);
+        if (versions.size() < 2) {
+            return Mono.just(versions.stream().findFirst());
+        }
+        return orderService.getOrderById(id)
+                .map(order -> Optional.of(OrderETags.listed(versions, order.version())));
+    }
+}
@@ -0,0 +1,9 @@
+package cat.itacademy.s04.t02.n03.fruit.dto;
+
+import java.time.LocalDate;
+
+public record FruitDemand(
+        LocalDate deliveryDate,
+        String fruitName,
+        long totalKilos
+) {}
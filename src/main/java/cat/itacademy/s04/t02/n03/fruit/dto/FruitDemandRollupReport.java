@@ -0,0 +1,11 @@
+package cat.itacademy.s04.t02.n03.fruit.dto;
+
+import java.time.LocalDate;
+
+public record FruitDemandRollupReport(
+        LocalDate from,
+        LocalDate to,
+        int chunks,
+        long mismatches,
+        boolean repaired
+) {}
@@ -0,0 +1,10 @@
+package cat.itacademy.s04.t02.n03.fruit.dto;
+
+import java.time.LocalDate;
+
+public record OrderArchiveReport(
+        LocalDate deliveredBefore,
+        long archived,
+        long conflicts,
+        long remaining
+) {}
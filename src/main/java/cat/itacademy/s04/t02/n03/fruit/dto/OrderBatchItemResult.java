@@ -0,0 +1,18 @@
+package cat.itacademy.s04.t02.n03.fruit.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record OrderBatchItemResult(
+        int index,
+        String id,
+        String error
+) {
+    public static OrderBatchItemResult created(int index, String id) {
+        return new OrderBatchItemResult(index, id, null);
+    }
+
+    public static OrderBatchItemResult failed(int index, String error) {
+        return new OrderBatchItemResult(index, null, error);
+    }
+}
@@ -0,0 +1,25 @@
+package cat.itacademy.s04.t02.n03.fruit.dto;
+
+import cat.itacademy.s04.t02.n03.fruit.exception.BadRequestException;
+
+import java.time.LocalDate;
+
+public record OrderFilter(
+        String clientName,
+        LocalDate deliveryFrom,
+        LocalDate deliveryTo,
+        String fruitName,
+        boolean includeArchived
+) {
+    public static final OrderFilter NONE = new OrderFilter(null, null, null, null);
+
+    public OrderFilter {
+        if (deliveryFrom != null && deliveryTo != null && deliveryFrom.isAfter(deliveryTo)) {
+            throw new BadRequestException("deliveryFrom must not be after deliveryTo");
+        }
+    }
+
+    public OrderFilter(String clientName, LocalDate deliveryFrom, LocalDate deliveryTo, String fruitName) {
+        this(clientName, deliveryFrom, deliveryTo, fruitName, false);
+    }
+}
@@ -0,0 +1,8 @@
+package cat.itacademy.s04.t02.n03.fruit.dto;
+
+import java.util.List;
+
+public record OrderPage(
+        List<OrderResponse> orders,
+        String nextCursor
+) {}
@@ -0,0 +1,15 @@
+package cat.itacademy.s04.t02.n03.fruit.dto;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * JSON Merge Patch of an order. Absent fields are left unchanged. {@code items} is keyed by fruit name:
+ * a quantity sets that fruit's line, adding it if the order has none, and {@code null} removes it. The fields
+ * themselves cannot be removed, so an explicit {@code null} for any of them is a bad request.
+ */
+public record OrderPatchRequest(
+        String clientName,
+        LocalDate deliveryDate,
+        Map<String, Integer> items
+) {}
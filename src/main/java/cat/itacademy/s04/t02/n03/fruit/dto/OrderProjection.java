@@ -0,0 +1,52 @@
+package cat.itacademy.s04.t02.n03.fruit.dto;
+
+import cat.itacademy.s04.t02.n03.fruit.exception.BadRequestException;
+
+/**
+ * Order fields requested with {@code fields=}. The id, and the version behind the ETag, are always read.
+ */
+public record OrderProjection(
+        boolean clientName,
+        boolean deliveryDate,
+        boolean items
+) {
+    public static final OrderProjection ALL = new OrderProjection(true, true, true);
+
+    public static OrderProjection parse(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return ALL;
+        }
+
+        boolean clientName = false;
+        boolean deliveryDate = false;
+        boolean items = false;
+        for (String field : fields.split(",")) {
+            switch (field.trim()) {
+                case "id" -> {
+                }
+                case "clientName" -> clientName = true;
+                case "deliveryDate" -> deliveryDate = true;
+                case "items" -> items = true;
+                default -> throw new BadRequestException("Unknown field: " + field.trim());
+            }
+        }
+        return new OrderProjection(clientName, deliveryDate, items);
+    }
+
+    public boolean isAll() {
+        return clientName && deliveryDate && items;
+    }
+
+    public OrderResponse apply(OrderResponse order) {
+        if (isAll()) {
+            return order;
+        }
+        return new OrderResponse(
+                order.id(),
+                clientName ? order.clientName() : null,
+                deliveryDate ? order.deliveryDate() : null,
+                items ? order.items() : null,
+                order.version()
+        );
+    }
+}
@@ -1,12 +1,20 @@
 package cat.itacademy.s04.t02.n03.fruit.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import java.time.LocalDate;
 import java.util.List;
 
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public record OrderResponse(
         String id,
         String clientName,
         LocalDate deliveryDate,
-        List<OrderItemResponse> items
-) {}
-
+        List<OrderItemResponse> items,
+        @JsonIgnore Long version
+) {
+    public OrderResponse(String id, String clientName, LocalDate deliveryDate, List<OrderItemResponse> items) {
+        this(id, clientName, deliveryDate, items, null);
+    }
+}
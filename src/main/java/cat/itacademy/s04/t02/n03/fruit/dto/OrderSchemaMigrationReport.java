@@ -0,0 +1,7 @@
+package cat.itacademy.s04.t02.n03.fruit.dto;
+
+public record OrderSchemaMigrationReport(
+        long migrated,
+        long conflicts,
+        long remaining
+) {}
@@ -9,5 +9,16 @@ public class BadRequestException extends RuntimeException {
     public BadRequestException(String message) {
         super(message);
     }
-}
 
+    private BadRequestException(String message, boolean writableStackTrace) {
+        super(message, null, false, writableStackTrace);
+    }
+
+    /**
+     * An exception without a stack trace, cheap enough to keep in a constant and throw for every invalid request
+     * that fails the same check.
+     */
+    public static BadRequestException stackless(String message) {
+        return new BadRequestException(message, false);
+    }
+}
@@ -4,5 +4,16 @@ public class NotFoundException extends RuntimeException {
     public NotFoundException(String message) {
         super(message);
     }
-}
 
+    private NotFoundException(String message, boolean writableStackTrace) {
+        super(message, null, false, writableStackTrace);
+    }
+
+    /**
+     * An exception without a stack trace, cheap enough to keep in a constant and throw for every lookup that
+     * misses.
+     */
+    public static NotFoundException stackless(String message) {
+        return new NotFoundException(message, false);
+    }
+}
@@ -0,0 +1,8 @@
+package cat.itacademy.s04.t02.n03.fruit.exception;
+
+public class PayloadTooLargeException extends RuntimeException {
+
+    public PayloadTooLargeException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package cat.itacademy.s04.t02.n03.fruit.exception;
+
+public class PreconditionFailedException extends RuntimeException {
+    public PreconditionFailedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,56 @@
+package cat.itacademy.s04.t02.n03.fruit.exception;
+
+import cat.itacademy.s04.t02.n03.fruit.dto.ErrorResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.support.DefaultMessageSourceResolvable;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.bind.support.WebExchangeBindException;
+
+import java.time.Instant;
+
+@RestControllerAdvice
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveGlobalExceptionHandler {
+
+    @ExceptionHandler(WebExchangeBindException.class)
+    public ResponseEntity<ErrorResponse> handleValidation(WebExchangeBindException ex, ServerHttpRequest request) {
+
+        String message = ex.getFieldErrors().stream()
+                .map(DefaultMessageSourceResolvable::getDefaultMessage)
+                .findFirst()
+                .orElse("Validation error");
+
+        return error(HttpStatus.BAD_REQUEST, "Validation Error", message, request);
+    }
+
+    @ExceptionHandler(BadRequestException.class)
+    public ResponseEntity<ErrorResponse> handleBadRequest(BadRequestException ex, ServerHttpRequest request) {
+        return error(HttpStatus.BAD_REQUEST, "Bad Request", ex.getMessage(), request);
+    }
+
+    @ExceptionHandler(NotFoundException.class)
+    public ResponseEntity<ErrorResponse> handleNotFound(NotFoundException ex, ServerHttpRequest request) {
+        return error(HttpStatus.NOT_FOUND, "Not Found", ex.getMessage(), request);
+    }
+
+    @ExceptionHandler(PreconditionFailedException.class)
+    public ResponseEntity<ErrorResponse> handlePreconditionFailed(PreconditionFailedException ex, ServerHttpRequest request) {
+        return error(HttpStatus.PRECONDITION_FAILED, "Precondition Failed", ex.getMessage(), request);
+    }
+
+    private ResponseEntity<ErrorResponse> error(HttpStatus status, String error, String message, ServerHttpRequest request) {
+        ErrorResponse body = new ErrorResponse(
+                Instant.now(),
+                status.value(),
+                error,
+                message,
+                request.getPath().value()
+        );
+
+        return ResponseEntity.status(status).body(body);
+    }
+}
@@ -0,0 +1,21 @@
+package cat.itacademy.s04.t02.n03.fruit.exception;
+
+import java.time.Duration;
+
+public class ServiceUnavailableException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public ServiceUnavailableException(String message) {
+        this(message, Duration.ofSeconds(1));
+    }
+
+    public ServiceUnavailableException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,21 @@
+package cat.itacademy.s04.t02.n03.fruit.model;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+@Document(collection = "change_stream_checkpoints")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChangeStreamCheckpoint {
+
+    @Id
+    private String id;
+
+    private String resumeToken;
+    private Instant updatedAt;
+}
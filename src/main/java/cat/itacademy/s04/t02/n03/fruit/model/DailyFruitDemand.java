@@ -0,0 +1,24 @@
+package cat.itacademy.s04.t02.n03.fruit.model;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDate;
+
+@Document(collection = "demand_by_day_fruit")
+@CompoundIndex(name = "day_fruit_idx", def = "{'deliveryDate': 1, 'fruitName': 1}", unique = true)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailyFruitDemand {
+
+    @Id
+    private String id;
+
+    private LocalDate deliveryDate;
+    private String fruitName;
+    private long totalKilos;
+}
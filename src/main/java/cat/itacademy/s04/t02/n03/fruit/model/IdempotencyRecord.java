@@ -0,0 +1,31 @@
+package cat.itacademy.s04.t02.n03.fruit.model;
+
+import cat.itacademy.s04.t02.n03.fruit.dto.OrderResponse;
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * An {@code Idempotency-Key} seen on {@code POST /orders}. {@code response} stays {@code null} while the first
+ * request is still running; the document expires at {@code expiresAt}.
+ */
+@Document(collection = "idempotency_keys")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyRecord {
+
+    @Id
+    private String key;
+
+    private String fingerprint;
+    private OrderResponse response;
+    private Instant claimedAt;
+
+    @Indexed(name = "expires_at_ttl_idx", expireAfter = "0s")
+    private Instant expiresAt;
+}
@@ -2,12 +2,19 @@ package cat.itacademy.s04.t02.n03.fruit.model;
 
 import lombok.*;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
 
 import java.time.LocalDate;
 import java.util.List;
 
 @Document(collection = "orders")
+@CompoundIndex(name = "c_id_d_idx", def = "{'c': 1, '_id': 1, 'd': 1}")
+@CompoundIndex(name = "d_id_idx", def = "{'d': 1, '_id': 1}")
+@CompoundIndex(name = "i_f_id_idx", def = "{'i.f': 1, '_id': 1}")
+@CompoundIndex(name = "k_id_idx", def = "{'k': 1, '_id': 1}")
 @Getter
 @Setter
 @NoArgsConstructor
@@ -18,10 +25,23 @@ public class Order {
     @Id
     private String id;
 
+    @Field(OrderFields.CLIENT_NAME)
     private String clientName;
+
+    @Field(OrderFields.DELIVERY_DATE)
     private LocalDate deliveryDate;
+
+    @Field(OrderFields.ITEMS)
     private List<OrderItem> items;
 
+    @Version
+    private Long version;
+
+    public Order(String id, String clientName, LocalDate deliveryDate, List<OrderItem> items) {
+        this(clientName, deliveryDate, items);
+        this.id = id;
+    }
+
     public Order(String clientName, LocalDate deliveryDate, List<OrderItem> items) {
         this.clientName = clientName;
         this.deliveryDate = deliveryDate;
@@ -0,0 +1,27 @@
+package cat.itacademy.s04.t02.n03.fruit.model;
+
+/**
+ * Field names of the compact {@code orders} schema, plus the long names written before it.
+ */
+public final class OrderFields {
+
+    public static final String CLIENT_NAME = "c";
+    public static final String DELIVERY_DATE = "d";
+    public static final String ITEMS = "i";
+    public static final String FRUIT_ID = "f";
+    public static final String QUANTITY = "q";
+    public static final String VERSION = "version";
+    public static final String CLIENT_KEY = "k";
+
+    public static final String ITEM_FRUIT_ID = ITEMS + "." + FRUIT_ID;
+    public static final String ITEM_QUANTITY = ITEMS + "." + QUANTITY;
+
+    public static final String LEGACY_CLIENT_NAME = "clientName";
+    public static final String LEGACY_DELIVERY_DATE = "deliveryDate";
+    public static final String LEGACY_ITEMS = "items";
+    public static final String LEGACY_FRUIT_NAME = "fruitName";
+    public static final String LEGACY_QUANTITY = "quantityInKilos";
+
+    private OrderFields() {
+    }
+}
@@ -0,0 +1,7 @@
+package cat.itacademy.s04.t02.n03.fruit.repository;
+
+import cat.itacademy.s04.t02.n03.fruit.model.ChangeStreamCheckpoint;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+public interface ChangeStreamCheckpointRepository extends MongoRepository<ChangeStreamCheckpoint, String> {
+}
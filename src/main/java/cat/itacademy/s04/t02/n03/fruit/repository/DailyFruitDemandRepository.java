@@ -0,0 +1,13 @@
+package cat.itacademy.s04.t02.n03.fruit.repository;
+
+import cat.itacademy.s04.t02.n03.fruit.model.DailyFruitDemand;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import java.util.Optional;
+
+public interface DailyFruitDemandRepository extends MongoRepository<DailyFruitDemand, String>, DailyFruitDemandRepositoryCustom {
+
+    Optional<DailyFruitDemand> findFirstByOrderByDeliveryDateAsc();
+
+    Optional<DailyFruitDemand> findFirstByOrderByDeliveryDateDesc();
+}
@@ -0,0 +1,19 @@
+package cat.itacademy.s04.t02.n03.fruit.repository;
+
+import cat.itacademy.s04.t02.n03.fruit.dto.FruitDemand;
+import cat.itacademy.s04.t02.n03.fruit.dto.OrderFilter;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.stream.Stream;
+
+public interface DailyFruitDemandRepositoryCustom {
+
+    void increment(Collection<FruitDemand> deltas);
+
+    Stream<FruitDemand> streamDemand(OrderFilter filter);
+
+    Stream<FruitDemand> streamRows(LocalDate from, LocalDate to);
+
+    void overwrite(Collection<FruitDemand> totals, Collection<FruitDemand> stale);
+}
@@ -0,0 +1,97 @@
+package cat.itacademy.s04.t02.n03.fruit.repository;
+
+import cat.itacademy.s04.t02.n03.fruit.dto.FruitDemand;
+import cat.itacademy.s04.t02.n03.fruit.dto.OrderFilter;
+import cat.itacademy.s04.t02.n03.fruit.model.DailyFruitDemand;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.stream.Stream;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+public class DailyFruitDemandRepositoryCustomImpl implements DailyFruitDemandRepositoryCustom {
+
+    private static final int STREAM_BATCH_SIZE = 500;
+
+    private final MongoTemplate mongoTemplate;
+
+    public DailyFruitDemandRepositoryCustomImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public void increment(Collection<FruitDemand> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, DailyFruitDemand.class);
+        for (FruitDemand delta : deltas) {
+            bulk.upsert(byKey(delta), new Update().inc("totalKilos", delta.totalKilos()));
+        }
+        bulk.execute();
+    }
+
+    @Override
+    public Stream<FruitDemand> streamDemand(OrderFilter filter) {
+        Query query = byDateRange(filter.deliveryFrom(), filter.deliveryTo());
+        if (filter.fruitName() != null) {
+            query.addCriteria(where("fruitName").is(filter.fruitName()));
+        }
+        query.addCriteria(where("totalKilos").gt(0));
+
+        return stream(query);
+    }
+
+    @Override
+    public Stream<FruitDemand> streamRows(LocalDate from, LocalDate to) {
+        return stream(byDateRange(from, to));
+    }
+
+    @Override
+    public void overwrite(Collection<FruitDemand> totals, Collection<FruitDemand> stale) {
+        if (totals.isEmpty() && stale.isEmpty()) {
+            return;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, DailyFruitDemand.class);
+        for (FruitDemand total : totals) {
+            bulk.upsert(byKey(total), new Update().set("totalKilos", total.totalKilos()));
+        }
+        for (FruitDemand row : stale) {
+            bulk.remove(byKey(row));
+        }
+        bulk.execute();
+    }
+
+    private Stream<FruitDemand> stream(Query query) {
+        query.with(Sort.by("deliveryDate", "fruitName")).cursorBatchSize(STREAM_BATCH_SIZE);
+
+        return mongoTemplate.stream(query, DailyFruitDemand.class)
+                .map(row -> new FruitDemand(row.getDeliveryDate(), row.getFruitName(), row.getTotalKilos()));
+    }
+
+    private Query byDateRange(LocalDate from, LocalDate to) {
+        Query query = new Query();
+        if (from != null || to != null) {
+            Criteria deliveryDate = where("deliveryDate");
+            if (from != null) {
+                deliveryDate.gte(from);
+            }
+            if (to != null) {
+                deliveryDate.lte(to);
+            }
+            query.addCriteria(deliveryDate);
+        }
+        return query;
+    }
+
+    private Query byKey(FruitDemand demand) {
+        return Query.query(where("deliveryDate").is(demand.deliveryDate()).and("fruitName").is(demand.fruitName()));
+    }
+}
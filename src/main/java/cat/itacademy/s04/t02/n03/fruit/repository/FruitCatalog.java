@@ -0,0 +1,138 @@
+package cat.itacademy.s04.t02.n03.fruit.repository;
+
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoWriteException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Sorts;
+import cat.itacademy.s04.t02.n03.fruit.config.MongoBulkhead;
+import org.bson.Document;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Dictionary of fruit names stored in {@code fruits} as {@code {_id: <int>, name: <string>}}, so order items
+ * persist a small integer instead of repeating the name. Entries never change once written, so both directions
+ * are cached for the life of the process.
+ * <p>
+ * Talks to the driver directly rather than through {@code MongoTemplate}, because the order converters that
+ * depend on it are themselves part of the template's setup. The whole dictionary is loaded once the context is up,
+ * before the web server starts, so the converters rarely have to block on a lookup while a request runs. Only the
+ * lookups that miss the cache go through the bulkhead.
+ */
+@Component
+public class FruitCatalog implements SmartInitializingSingleton {
+
+    static final String COLLECTION = "fruits";
+
+    private final MongoDatabaseFactory databaseFactory;
+    private final MongoBulkhead bulkhead;
+    private final Map<String, Integer> idsByName = new ConcurrentHashMap<>();
+    private final Map<Integer, String> namesById = new ConcurrentHashMap<>();
+    private volatile boolean nameIndexEnsured;
+
+    public FruitCatalog(MongoDatabaseFactory databaseFactory, MongoBulkhead bulkhead) {
+        this.databaseFactory = databaseFactory;
+        this.bulkhead = bulkhead;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        for (Document fruit : bulkhead.supply(() -> fruits().find().into(new ArrayList<>()))) {
+            remember(fruit.getInteger("_id"), fruit.getString("name"));
+        }
+    }
+
+    public int idOf(String name) {
+        Integer id = idsByName.get(name);
+        if (id != null) {
+            return id;
+        }
+        OptionalInt existing = findId(name);
+        return existing.isPresent() ? existing.getAsInt() : bulkhead.supply(() -> register(name));
+    }
+
+    public OptionalInt findId(String name) {
+        Integer id = idsByName.get(name);
+        if (id != null) {
+            return OptionalInt.of(id);
+        }
+        Document fruit = bulkhead.supply(() -> fruits().find(Filters.eq("name", name)).first());
+        if (fruit == null) {
+            return OptionalInt.empty();
+        }
+        remember(fruit.getInteger("_id"), name);
+        return OptionalInt.of(fruit.getInteger("_id"));
+    }
+
+    /** Ids of the fruits whose name starts with {@code prefix}, ignoring case. */
+    public List<Integer> findIdsByPrefix(String prefix) {
+        Pattern startsWith = Pattern.compile("^" + Pattern.quote(prefix), Pattern.CASE_INSENSITIVE);
+        List<Integer> ids = new ArrayList<>();
+        for (Document fruit : bulkhead.supply(() -> fruits().find(Filters.regex("name", startsWith)).into(new ArrayList<>()))) {
+            remember(fruit.getInteger("_id"), fruit.getString("name"));
+            ids.add(fruit.getInteger("_id"));
+        }
+        return ids;
+    }
+
+    public String nameOf(int id) {
+        String name = namesById.get(id);
+        if (name != null) {
+            return name;
+        }
+        Document fruit = bulkhead.supply(() -> fruits().find(Filters.eq("_id", id)).first());
+        if (fruit == null) {
+            throw new IllegalStateException("Unknown fruit id " + id);
+        }
+        remember(id, fruit.getString("name"));
+        return fruit.getString("name");
+    }
+
+    private int register(String name) {
+        ensureNameIndex();
+        while (true) {
+            Document last = fruits().find().sort(Sorts.descending("_id")).limit(1).first();
+            int id = last == null ? 1 : last.getInteger("_id") + 1;
+            try {
+                fruits().insertOne(new Document("_id", id).append("name", name));
+                remember(id, name);
+                return id;
+            } catch (MongoWriteException e) {
+                if (e.getError().getCategory() != ErrorCategory.DUPLICATE_KEY) {
+                    throw e;
+                }
+                OptionalInt registeredMeanwhile = findId(name);
+                if (registeredMeanwhile.isPresent()) {
+                    return registeredMeanwhile.getAsInt();
+                }
+            }
+        }
+    }
+
+    private void ensureNameIndex() {
+        if (!nameIndexEnsured) {
+            fruits().createIndex(Indexes.ascending("name"), new IndexOptions().name("name_idx").unique(true));
+            nameIndexEnsured = true;
+        }
+    }
+
+    private void remember(int id, String name) {
+        idsByName.put(name, id);
+        namesById.put(id, name);
+    }
+
+    private MongoCollection<Document> fruits() {
+        return databaseFactory.getMongoDatabase().getCollection(COLLECTION);
+    }
+}
@@ -0,0 +1,39 @@
+package cat.itacademy.s04.t02.n03.fruit.repository;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Optional;
+
+/**
+ * Names of the archive collections: one {@code orders_archive_yyyyMM} collection per delivery month, plus
+ * {@value #LOOKUP} mapping each archived order id to the collection that holds it.
+ */
+public final class OrderArchiveCollections {
+
+    public static final String PREFIX = "orders_archive_";
+    public static final String LOOKUP = "orders_archive_ids";
+    public static final String LOOKUP_COLLECTION = "c";
+
+    private static final DateTimeFormatter MONTH = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private OrderArchiveCollections() {
+    }
+
+    public static String of(LocalDate deliveryDate) {
+        return PREFIX + YearMonth.from(deliveryDate).format(MONTH);
+    }
+
+    /** The month held by {@code collectionName}, or empty when it is not an archive partition. */
+    public static Optional<YearMonth> month(String collectionName) {
+        if (!collectionName.startsWith(PREFIX) || collectionName.length() != PREFIX.length() + 6) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(YearMonth.parse(collectionName.substring(PREFIX.length()), MONTH));
+        } catch (DateTimeParseException e) {
+            return Optional.empty();
+        }
+    }
+}
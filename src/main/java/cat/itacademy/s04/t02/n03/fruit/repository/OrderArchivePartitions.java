@@ -0,0 +1,64 @@
+package cat.itacademy.s04.t02.n03.fruit.repository;
+
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+/**
+ * The archive partitions that exist, listed from MongoDB at most once per {@link #REFRESH} instead of on every
+ * read. Partitions created by this node are added at once; one created by another node shows up in list reads
+ * after the next refresh. Reads by id go through the lookup collection and never depend on this list.
+ */
+@Component
+public class OrderArchivePartitions {
+
+    static final Duration REFRESH = Duration.ofMinutes(1);
+
+    private final MongoTemplate mongoTemplate;
+    private volatile Snapshot snapshot;
+
+    public OrderArchivePartitions(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    /** Partitions for the months from {@code from} to {@code to}, either of which may be open, in month order. */
+    public List<String> between(YearMonth from, YearMonth to) {
+        return current().names().stream()
+                .filter(name -> OrderArchiveCollections.month(name)
+                        .filter(month -> (from == null || !month.isBefore(from)) && (to == null || !month.isAfter(to)))
+                        .isPresent())
+                .toList();
+    }
+
+    public void add(String name) {
+        Snapshot current = current();
+        if (!current.names().contains(name)) {
+            TreeSet<String> names = new TreeSet<>(current.names());
+            names.add(name);
+            snapshot = new Snapshot(List.copyOf(names), current.loadedAt());
+        }
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        long now = System.nanoTime();
+        if (current == null || now - current.loadedAt() >= REFRESH.toNanos()) {
+            current = new Snapshot(load(), now);
+            snapshot = current;
+        }
+        return current;
+    }
+
+    private List<String> load() {
+        try (Stream<String> names = mongoTemplate.getCollectionNames().stream()) {
+            return names.filter(name -> OrderArchiveCollections.month(name).isPresent()).sorted().toList();
+        }
+    }
+
+    private record Snapshot(List<String> names, long loadedAt) {}
+}
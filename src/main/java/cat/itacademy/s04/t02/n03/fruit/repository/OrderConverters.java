@@ -0,0 +1,114 @@
+package cat.itacademy.s04.t02.n03.fruit.repository;
+
+import cat.itacademy.s04.t02.n03.fruit.model.Order;
+import cat.itacademy.s04.t02.n03.fruit.model.OrderFields;
+import cat.itacademy.s04.t02.n03.fruit.model.OrderItem;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.convert.ReadingConverter;
+import org.springframework.data.convert.WritingConverter;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Converters for the compact {@code orders} schema. Items are written as {@code {f: <fruit id>, q: <kilos>}};
+ * orders and items are read from either the compact or the original long-named layout, so documents written
+ * before {@code OrderSchemaMigration} ran stay readable.
+ */
+public final class OrderConverters {
+
+    private OrderConverters() {
+    }
+
+    public static List<Converter<?, ?>> all(FruitCatalog fruitCatalog) {
+        return List.of(new OrderItemWriter(fruitCatalog), new OrderItemReader(fruitCatalog), new OrderReader(fruitCatalog));
+    }
+
+    @WritingConverter
+    static class OrderItemWriter implements Converter<OrderItem, Document> {
+
+        private final FruitCatalog fruitCatalog;
+
+        OrderItemWriter(FruitCatalog fruitCatalog) {
+            this.fruitCatalog = fruitCatalog;
+        }
+
+        @Override
+        public Document convert(OrderItem item) {
+            return new Document(OrderFields.FRUIT_ID, fruitCatalog.idOf(item.getFruitName()))
+                    .append(OrderFields.QUANTITY, item.getQuantityInKilos());
+        }
+    }
+
+    @ReadingConverter
+    static class OrderItemReader implements Converter<Document, OrderItem> {
+
+        private final FruitCatalog fruitCatalog;
+
+        OrderItemReader(FruitCatalog fruitCatalog) {
+            this.fruitCatalog = fruitCatalog;
+        }
+
+        @Override
+        public OrderItem convert(Document source) {
+            Integer fruitId = source.getInteger(OrderFields.FRUIT_ID);
+            if (fruitId == null) {
+                return new OrderItem(source.getString(OrderFields.LEGACY_FRUIT_NAME),
+                        source.getInteger(OrderFields.LEGACY_QUANTITY, 0));
+            }
+            return new OrderItem(fruitCatalog.nameOf(fruitId), source.getInteger(OrderFields.QUANTITY, 0));
+        }
+    }
+
+    @ReadingConverter
+    static class OrderReader implements Converter<Document, Order> {
+
+        private final OrderItemReader itemReader;
+
+        OrderReader(FruitCatalog fruitCatalog) {
+            this.itemReader = new OrderItemReader(fruitCatalog);
+        }
+
+        @Override
+        public Order convert(Document source) {
+            Order order = new Order(
+                    id(source.get("_id")),
+                    compactOrLegacy(source, OrderFields.CLIENT_NAME, OrderFields.LEGACY_CLIENT_NAME, String.class),
+                    localDate(compactOrLegacy(source, OrderFields.DELIVERY_DATE, OrderFields.LEGACY_DELIVERY_DATE, Date.class)),
+                    items(compactOrLegacy(source, OrderFields.ITEMS, OrderFields.LEGACY_ITEMS, List.class)));
+
+            Number version = source.get(OrderFields.VERSION, Number.class);
+            order.setVersion(version == null ? null : version.longValue());
+            return order;
+        }
+
+        private List<OrderItem> items(List<?> source) {
+            if (source == null) {
+                return null;
+            }
+            List<OrderItem> items = new ArrayList<>(source.size());
+            for (Object item : source) {
+                items.add(itemReader.convert((Document) item));
+            }
+            return items;
+        }
+
+        private static <T> T compactOrLegacy(Document source, String compact, String legacy, Class<T> type) {
+            T value = source.get(compact, type);
+            return value != null ? value : source.get(legacy, type);
+        }
+
+        private static String id(Object id) {
+            return id instanceof ObjectId objectId ? objectId.toHexString() : (String) id;
+        }
+
+        private static LocalDate localDate(Date date) {
+            return date == null ? null : date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+        }
+    }
+}
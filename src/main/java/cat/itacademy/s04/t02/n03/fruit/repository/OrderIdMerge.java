@@ -0,0 +1,73 @@
+package cat.itacademy.s04.t02.n03.fruit.repository;
+
+import cat.itacademy.s04.t02.n03.fruit.model.Order;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Merges streams that are each sorted by id into one stream sorted by id, holding one order per source. When
+ * several sources hold the same id, the one listed first wins, so an order caught between {@code orders} and its
+ * archive partition is returned once, as its live copy. Closing the merged stream closes every source.
+ */
+final class OrderIdMerge implements Iterator<Order> {
+
+    private static final Comparator<Head> ORDER = Comparator.comparing((Head head) -> head.order().getId())
+            .thenComparingInt(Head::source);
+
+    private final List<Iterator<Order>> sources = new ArrayList<>();
+    private final PriorityQueue<Head> heads = new PriorityQueue<>(ORDER);
+    private String lastId;
+
+    private OrderIdMerge(List<Stream<Order>> streams) {
+        for (Stream<Order> stream : streams) {
+            sources.add(stream.iterator());
+            advance(sources.size() - 1);
+        }
+    }
+
+    static Stream<Order> merge(List<Stream<Order>> streams) {
+        if (streams.size() == 1) {
+            return streams.getFirst();
+        }
+        OrderIdMerge merge = new OrderIdMerge(streams);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(merge, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> streams.forEach(Stream::close));
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!heads.isEmpty() && heads.peek().order().getId().equals(lastId)) {
+            advance(heads.poll().source());
+        }
+        return !heads.isEmpty();
+    }
+
+    @Override
+    public Order next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Head head = heads.poll();
+        lastId = head.order().getId();
+        advance(head.source());
+        return head.order();
+    }
+
+    private void advance(int source) {
+        Iterator<Order> iterator = sources.get(source);
+        if (iterator.hasNext()) {
+            heads.add(new Head(iterator.next(), source));
+        }
+    }
+
+    private record Head(Order order, int source) {}
+}
@@ -0,0 +1,207 @@
+package cat.itacademy.s04.t02.n03.fruit.repository;
+
+import cat.itacademy.s04.t02.n03.fruit.dto.OrderFilter;
+import cat.itacademy.s04.t02.n03.fruit.dto.OrderProjection;
+import cat.itacademy.s04.t02.n03.fruit.model.Order;
+import cat.itacademy.s04.t02.n03.fruit.model.OrderFields;
+import cat.itacademy.s04.t02.n03.fruit.model.OrderItem;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+final class OrderQueries {
+
+    private static final int UNKNOWN_FRUIT_ID = -1;
+
+    private OrderQueries() {
+    }
+
+    static Query filter(OrderFilter filter, FruitCatalog fruitCatalog) {
+        return new Query(criteria(filter, fruitCatalog)).with(Sort.by(Sort.Direction.ASC, "id"));
+    }
+
+    static Criteria criteria(OrderFilter filter, FruitCatalog fruitCatalog) {
+        Criteria criteria = new Criteria();
+
+        if (filter.clientName() != null) {
+            criteria.and("clientName").is(filter.clientName());
+        }
+        if (filter.deliveryFrom() != null || filter.deliveryTo() != null) {
+            Criteria deliveryDate = criteria.and("deliveryDate");
+            if (filter.deliveryFrom() != null) {
+                deliveryDate.gte(filter.deliveryFrom());
+            }
+            if (filter.deliveryTo() != null) {
+                deliveryDate.lte(filter.deliveryTo());
+            }
+        }
+        if (filter.fruitName() != null) {
+            criteria.and(OrderFields.ITEM_FRUIT_ID).is(fruitId(filter.fruitName(), fruitCatalog));
+        }
+        return criteria;
+    }
+
+    /**
+     * Orders whose client name starts with {@code clientPrefix} and that hold a fruit from {@code fruitIds}, either
+     * of which may be absent. With a client prefix, results are ranked by search key, so an exact name comes
+     * before its longer completions, and then by id; the query is a range scan on {@code k_id_idx} that stops after
+     * the page. Without one they are in id order, merged from {@code i_f_id_idx}.
+     */
+    static Query search(String clientPrefix, List<Integer> fruitIds, String afterKey, String afterId) {
+        Criteria criteria = new Criteria();
+        if (clientPrefix != null) {
+            criteria = where(OrderFields.CLIENT_KEY)
+                    .gte(afterKey != null ? afterKey : clientPrefix)
+                    .lt(OrderSearchKeys.upperBound(clientPrefix));
+            if (afterId != null) {
+                criteria.orOperator(where(OrderFields.CLIENT_KEY).gt(afterKey), where("id").gt(new ObjectId(afterId)));
+            }
+        } else if (afterId != null) {
+            criteria.and("id").gt(new ObjectId(afterId));
+        }
+        if (fruitIds != null) {
+            criteria.and(OrderFields.ITEM_FRUIT_ID).in(fruitIds);
+        }
+
+        Sort sort = clientPrefix != null
+                ? Sort.by(OrderFields.CLIENT_KEY).and(Sort.by("id"))
+                : Sort.by("id");
+        return new Query(criteria).with(sort);
+    }
+
+    static Query project(Query query, OrderProjection fields) {
+        if (fields.isAll()) {
+            return query;
+        }
+        query.fields().include("id", "version");
+        if (fields.clientName()) {
+            query.fields().include("clientName");
+        }
+        if (fields.deliveryDate()) {
+            query.fields().include("deliveryDate");
+        }
+        if (fields.items()) {
+            query.fields().include("items");
+        }
+        return query;
+    }
+
+    static int fruitId(String fruitName, FruitCatalog fruitCatalog) {
+        return fruitCatalog.findId(fruitName).orElse(UNKNOWN_FRUIT_ID);
+    }
+
+    static Query byIdAndVersion(String id, Long expectedVersion) {
+        Query query = Query.query(where("id").is(id));
+        if (expectedVersion != null) {
+            query.addCriteria(where("version").is(expectedVersion));
+        }
+        return query;
+    }
+
+    static Update setFields(Order changes) {
+        return new Update()
+                .set("clientName", changes.getClientName())
+                .set(OrderFields.CLIENT_KEY, OrderSearchKeys.of(changes.getClientName()))
+                .set("deliveryDate", changes.getDeliveryDate())
+                .set("items", changes.getItems());
+    }
+
+    /**
+     * Builds the smallest update that turns {@code current} into {@code patched}. Changed quantities are set by
+     * array index and new lines are pushed or set after the last one; when lines are only removed they are pulled
+     * by fruit id. Any other item change, such as a removal together with an addition, rewrites the item list,
+     * because one update cannot pull from and write into the same array.
+     */
+    static Update patch(Order current, Order patched, FruitCatalog fruitCatalog) {
+        Update update = new Update();
+        if (!Objects.equals(current.getClientName(), patched.getClientName())) {
+            update.set("clientName", patched.getClientName());
+            update.set(OrderFields.CLIENT_KEY, OrderSearchKeys.of(patched.getClientName()));
+        }
+        if (!Objects.equals(current.getDeliveryDate(), patched.getDeliveryDate())) {
+            update.set("deliveryDate", patched.getDeliveryDate());
+        }
+
+        List<OrderItem> before = current.getItems();
+        List<OrderItem> after = patched.getItems();
+        if (extendsSameLines(before, after)) {
+            setChangedQuantities(update, before, after);
+        } else if (removesLinesOnly(before, after)) {
+            update.pull(OrderFields.ITEMS, new Document(OrderFields.FRUIT_ID, new Document("$in",
+                    removedFruits(before, after).stream().map(fruitCatalog::idOf).toList())));
+        } else {
+            update.set("items", after);
+        }
+        return update;
+    }
+
+    private static void setChangedQuantities(Update update, List<OrderItem> before, List<OrderItem> after) {
+        boolean quantityChanged = false;
+        for (int i = 0; i < before.size(); i++) {
+            if (before.get(i).getQuantityInKilos() != after.get(i).getQuantityInKilos()) {
+                update.set(itemPath(i) + "." + OrderFields.QUANTITY, after.get(i).getQuantityInKilos());
+                quantityChanged = true;
+            }
+        }
+
+        List<OrderItem> added = after.subList(before.size(), after.size());
+        if (added.isEmpty()) {
+            return;
+        }
+        if (!quantityChanged) {
+            update.push("items").each(added.toArray());
+            return;
+        }
+        for (int i = 0; i < added.size(); i++) {
+            update.set(itemPath(before.size() + i), added.get(i));
+        }
+    }
+
+    private static boolean extendsSameLines(List<OrderItem> before, List<OrderItem> after) {
+        if (after.size() < before.size()) {
+            return false;
+        }
+        for (int i = 0; i < before.size(); i++) {
+            if (!Objects.equals(before.get(i).getFruitName(), after.get(i).getFruitName())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean removesLinesOnly(List<OrderItem> before, List<OrderItem> after) {
+        Set<String> removed = removedFruits(before, after);
+        List<OrderItem> kept = before.stream().filter(item -> !removed.contains(item.getFruitName())).toList();
+        if (removed.isEmpty() || kept.size() != after.size()) {
+            return false;
+        }
+        for (int i = 0; i < kept.size(); i++) {
+            if (!Objects.equals(kept.get(i).getFruitName(), after.get(i).getFruitName())
+                    || kept.get(i).getQuantityInKilos() != after.get(i).getQuantityInKilos()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Set<String> removedFruits(List<OrderItem> before, List<OrderItem> after) {
+        Set<String> removed = new LinkedHashSet<>();
+        before.forEach(item -> removed.add(item.getFruitName()));
+        after.forEach(item -> removed.remove(item.getFruitName()));
+        return removed;
+    }
+
+    private static String itemPath(int index) {
+        return OrderFields.ITEMS + "." + index;
+    }
+}
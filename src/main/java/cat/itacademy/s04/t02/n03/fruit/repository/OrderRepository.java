@@ -3,6 +3,11 @@ package cat.itacademy.s04.t02.n03.fruit.repository;
 import cat.itacademy.s04.t02.n03.fruit.model.Order;
 import org.springframework.data.mongodb.repository.MongoRepository;
 
-public interface OrderRepository extends MongoRepository<Order, String> {
-}
+import java.util.Optional;
+
+public interface OrderRepository extends MongoRepository<Order, String>, OrderRepositoryCustom {
 
+    Optional<Order> findFirstByOrderByDeliveryDateAsc();
+
+    Optional<Order> findFirstByOrderByDeliveryDateDesc();
+}
@@ -0,0 +1,34 @@
+package cat.itacademy.s04.t02.n03.fruit.repository;
+
+import cat.itacademy.s04.t02.n03.fruit.dto.FruitDemand;
+import cat.itacademy.s04.t02.n03.fruit.dto.OrderFilter;
+import cat.itacademy.s04.t02.n03.fruit.dto.OrderProjection;
+import cat.itacademy.s04.t02.n03.fruit.model.Order;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+public interface OrderRepositoryCustom {
+
+    List<Order> findPage(OrderFilter filter, String afterId, int limit, OrderProjection fields);
+
+    Stream<Order> streamAll(OrderFilter filter, OrderProjection fields);
+
+    Optional<Order> findById(String id, OrderProjection fields);
+
+    Optional<Order> findArchivedById(String id, OrderProjection fields);
+
+    List<Order> search(String clientPrefix, String fruitPrefix, String afterKey, String afterId, int limit);
+
+    Stream<FruitDemand> streamFruitDemand(OrderFilter filter);
+
+    Map<Integer, String> insertUnordered(List<Order> orders);
+
+    Optional<Order> findAndUpdateFields(String id, Long expectedVersion, Order changes);
+
+    Optional<Order> findAndPatch(Order current, Order patched);
+
+    Optional<Order> findAndRemove(String id, Long expectedVersion);
+}
@@ -0,0 +1,237 @@
+package cat.itacademy.s04.t02.n03.fruit.repository;
+
+import cat.itacademy.s04.t02.n03.fruit.dto.FruitDemand;
+import cat.itacademy.s04.t02.n03.fruit.dto.OrderFilter;
+import cat.itacademy.s04.t02.n03.fruit.dto.OrderProjection;
+import cat.itacademy.s04.t02.n03.fruit.model.Order;
+import cat.itacademy.s04.t02.n03.fruit.model.OrderFields;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.model.Filters;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.match;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+public class OrderRepositoryCustomImpl implements OrderRepositoryCustom {
+
+    private static final int STREAM_BATCH_SIZE = 500;
+
+    private final MongoTemplate mongoTemplate;
+    private final FruitCatalog fruitCatalog;
+    private final OrderArchivePartitions archivePartitions;
+
+    public OrderRepositoryCustomImpl(MongoTemplate mongoTemplate, FruitCatalog fruitCatalog,
+                                     OrderArchivePartitions archivePartitions) {
+        this.mongoTemplate = mongoTemplate;
+        this.fruitCatalog = fruitCatalog;
+        this.archivePartitions = archivePartitions;
+    }
+
+    @Override
+    public List<Order> findPage(OrderFilter filter, String afterId, int limit, OrderProjection fields) {
+        Query query = OrderQueries.project(OrderQueries.filter(filter, fruitCatalog), fields);
+        if (afterId != null) {
+            query.addCriteria(where("id").gt(new ObjectId(afterId)));
+        }
+        query.limit(limit);
+
+        if (!filter.includeArchived()) {
+            return mongoTemplate.find(query, Order.class);
+        }
+        // Each collection starts with an even share of the page and fetches more only when the merge reaches it.
+        List<String> partitions = archiveCollections(filter);
+        query.cursorBatchSize(limit / (partitions.size() + 1) + 1);
+        try (Stream<Order> orders = mergeWithArchive(query, partitions)) {
+            return orders.limit(limit).toList();
+        }
+    }
+
+    @Override
+    public Stream<Order> streamAll(OrderFilter filter, OrderProjection fields) {
+        Query query = OrderQueries.project(OrderQueries.filter(filter, fruitCatalog), fields).cursorBatchSize(STREAM_BATCH_SIZE);
+
+        if (!filter.includeArchived()) {
+            return mongoTemplate.stream(query, Order.class);
+        }
+        return mergeWithArchive(query, archiveCollections(filter));
+    }
+
+    /** {@code orders} and the given partitions, merged in id order with each order once, preferring its live copy. */
+    private Stream<Order> mergeWithArchive(Query query, List<String> partitions) {
+        List<Stream<Order>> sources = new ArrayList<>(partitions.size() + 1);
+        sources.add(mongoTemplate.stream(query, Order.class));
+        partitions.forEach(partition -> sources.add(mongoTemplate.stream(query, Order.class, partition)));
+        return OrderIdMerge.merge(sources);
+    }
+
+    @Override
+    public Optional<Order> findById(String id, OrderProjection fields) {
+        Query query = OrderQueries.project(Query.query(where("id").is(id)), fields);
+
+        return Optional.ofNullable(mongoTemplate.findOne(query, Order.class));
+    }
+
+    @Override
+    public Optional<Order> findArchivedById(String id, OrderProjection fields) {
+        Document location = mongoTemplate.getCollection(OrderArchiveCollections.LOOKUP)
+                .find(Filters.eq("_id", ObjectId.isValid(id) ? new ObjectId(id) : id))
+                .first();
+        if (location == null) {
+            return Optional.empty();
+        }
+        Query query = OrderQueries.project(Query.query(where("id").is(id)), fields);
+
+        return Optional.ofNullable(mongoTemplate.findOne(query, Order.class,
+                location.getString(OrderArchiveCollections.LOOKUP_COLLECTION)));
+    }
+
+    @Override
+    public List<Order> search(String clientPrefix, String fruitPrefix, String afterKey, String afterId, int limit) {
+        List<Integer> fruitIds = fruitPrefix == null ? null : fruitCatalog.findIdsByPrefix(fruitPrefix);
+        if (fruitIds != null && fruitIds.isEmpty()) {
+            return List.of();
+        }
+        Query query = OrderQueries.search(clientPrefix, fruitIds, afterKey, afterId).limit(limit);
+
+        return mongoTemplate.find(query, Order.class);
+    }
+
+    @Override
+    public Stream<FruitDemand> streamFruitDemand(OrderFilter filter) {
+        String orders = mongoTemplate.getCollectionName(Order.class);
+        if (!filter.includeArchived()) {
+            return aggregateFruitDemand(filter, orders, false);
+        }
+
+        // A day can be split between orders and its partition while it is being archived, so totals are summed here,
+        // and archived copies of orders that are still live are skipped by the partition pipeline.
+        Map<FruitDemand, Long> totals = new TreeMap<>(Comparator.comparing(FruitDemand::deliveryDate)
+                .thenComparing(FruitDemand::fruitName));
+        for (String collection : Stream.concat(Stream.of(orders), archiveCollections(filter).stream()).toList()) {
+            try (Stream<FruitDemand> demand = aggregateFruitDemand(filter, collection, !collection.equals(orders))) {
+                demand.forEach(total -> totals.merge(total, total.totalKilos(), Long::sum));
+            }
+        }
+        return totals.entrySet().stream()
+                .map(total -> new FruitDemand(total.getKey().deliveryDate(), total.getKey().fruitName(), total.getValue()));
+    }
+
+    private Stream<FruitDemand> aggregateFruitDemand(OrderFilter filter, String collection, boolean archived) {
+        List<AggregationOperation> pipeline = new ArrayList<>();
+        pipeline.add(match(OrderQueries.criteria(filter, fruitCatalog)));
+        if (archived) {
+            pipeline.add(stage("$lookup", new Document("from", mongoTemplate.getCollectionName(Order.class))
+                    .append("localField", "_id")
+                    .append("foreignField", "_id")
+                    .append("as", "live")));
+            pipeline.add(stage("$match", new Document("live", new Document("$size", 0))));
+        }
+        pipeline.add(stage("$project", new Document(OrderFields.DELIVERY_DATE, 1).append(OrderFields.ITEMS, 1)));
+        pipeline.add(stage("$unwind", "$" + OrderFields.ITEMS));
+        if (filter.fruitName() != null) {
+            pipeline.add(stage("$match", new Document(OrderFields.ITEM_FRUIT_ID,
+                    OrderQueries.fruitId(filter.fruitName(), fruitCatalog))));
+        }
+        pipeline.add(stage("$group", new Document("_id", new Document("d", "$" + OrderFields.DELIVERY_DATE)
+                .append("f", "$" + OrderFields.ITEM_FRUIT_ID))
+                .append("totalKilos", new Document("$sum", "$" + OrderFields.ITEM_QUANTITY))));
+        pipeline.add(stage("$lookup", new Document("from", FruitCatalog.COLLECTION)
+                .append("localField", "_id.f")
+                .append("foreignField", "_id")
+                .append("as", "fruit")));
+        pipeline.add(stage("$unwind", "$fruit"));
+        pipeline.add(stage("$project", new Document("_id", 0)
+                .append("deliveryDate", "$_id.d")
+                .append("fruitName", "$fruit.name")
+                .append("totalKilos", 1)));
+        pipeline.add(stage("$sort", new Document("deliveryDate", 1).append("fruitName", 1)));
+
+        TypedAggregation<Order> aggregation = Aggregation.newAggregation(Order.class, pipeline).withOptions(AggregationOptions.builder()
+                .allowDiskUse(true)
+                .cursorBatchSize(STREAM_BATCH_SIZE)
+                .build());
+
+        return mongoTemplate.aggregateStream(aggregation, collection, FruitDemand.class);
+    }
+
+    @Override
+    public Map<Integer, String> insertUnordered(List<Order> orders) {
+        for (Order order : orders) {
+            if (order.getVersion() == null) {
+                order.setVersion(0L);
+            }
+        }
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Order.class);
+        bulk.insert(orders);
+
+        try {
+            bulk.execute();
+            return Map.of();
+        } catch (BulkOperationException e) {
+            Map<Integer, String> errors = new HashMap<>();
+            for (BulkWriteError error : e.getErrors()) {
+                errors.put(error.getIndex(), error.getMessage());
+            }
+            return errors;
+        }
+    }
+
+    @Override
+    public Optional<Order> findAndUpdateFields(String id, Long expectedVersion, Order changes) {
+        return Optional.ofNullable(mongoTemplate.findAndModify(
+                OrderQueries.byIdAndVersion(id, expectedVersion),
+                OrderQueries.setFields(changes),
+                Order.class));
+    }
+
+    @Override
+    public Optional<Order> findAndPatch(Order current, Order patched) {
+        return Optional.ofNullable(mongoTemplate.findAndModify(
+                OrderQueries.byIdAndVersion(current.getId(), current.getVersion()),
+                OrderQueries.patch(current, patched, fruitCatalog),
+                FindAndModifyOptions.options().returnNew(true),
+                Order.class));
+    }
+
+    @Override
+    public Optional<Order> findAndRemove(String id, Long expectedVersion) {
+        return Optional.ofNullable(mongoTemplate.findAndRemove(
+                OrderQueries.byIdAndVersion(id, expectedVersion),
+                Order.class));
+    }
+
+    /**
+     * Archive partitions that can hold orders delivered within the filter's date range, so a bounded range only
+     * reads the months it covers.
+     */
+    private List<String> archiveCollections(OrderFilter filter) {
+        return archivePartitions.between(
+                filter.deliveryFrom() == null ? null : YearMonth.from(filter.deliveryFrom()),
+                filter.deliveryTo() == null ? null : YearMonth.from(filter.deliveryTo()));
+    }
+
+    private static AggregationOperation stage(String operator, Object spec) {
+        return context -> new Document(operator, spec);
+    }
+}
@@ -0,0 +1,21 @@
+package cat.itacademy.s04.t02.n03.fruit.repository;
+
+import cat.itacademy.s04.t02.n03.fruit.model.Order;
+import cat.itacademy.s04.t02.n03.fruit.model.OrderFields;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.mapping.event.BeforeSaveCallback;
+import org.springframework.stereotype.Component;
+
+/**
+ * Adds the client-name search key to every order document that {@code MongoTemplate} inserts or saves, bulk
+ * inserts included. Updates set it in {@link OrderQueries}.
+ */
+@Component
+public class OrderSearchKeyCallback implements BeforeSaveCallback<Order> {
+
+    @Override
+    public Order onBeforeSave(Order order, Document document, String collection) {
+        document.put(OrderFields.CLIENT_KEY, OrderSearchKeys.of(order.getClientName()));
+        return order;
+    }
+}
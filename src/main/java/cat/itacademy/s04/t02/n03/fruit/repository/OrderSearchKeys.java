@@ -0,0 +1,32 @@
+package cat.itacademy.s04.t02.n03.fruit.repository;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * The client-name search key stored in {@code k}: lower case, accents stripped and runs of whitespace collapsed,
+ * so that "  Frúit MART" and "fruit mart" sort and match the same. A prefix search is then a range scan on
+ * {@code {k: 1, _id: 1}} from the normalized prefix up to {@link #upperBound}.
+ */
+public final class OrderSearchKeys {
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+
+    private OrderSearchKeys() {
+    }
+
+    public static String of(String clientName) {
+        if (clientName == null) {
+            return null;
+        }
+        String decomposed = Normalizer.normalize(clientName, Normalizer.Form.NFD);
+        String unaccented = MARKS.matcher(decomposed).replaceAll("");
+        return SPACES.matcher(unaccented.strip()).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+
+    static String upperBound(String prefix) {
+        return new StringBuilder(prefix).appendCodePoint(Character.MAX_CODE_POINT).toString();
+    }
+}
@@ -0,0 +1,7 @@
+package cat.itacademy.s04.t02.n03.fruit.repository;
+
+import cat.itacademy.s04.t02.n03.fruit.model.Order;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+
+public interface ReactiveOrderRepository extends ReactiveMongoRepository<Order, String>, ReactiveOrderRepositoryCustom {
+}
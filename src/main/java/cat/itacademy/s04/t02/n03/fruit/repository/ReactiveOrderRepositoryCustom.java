@@ -0,0 +1,15 @@
+package cat.itacademy.s04.t02.n03.fruit.repository;
+
+import cat.itacademy.s04.t02.n03.fruit.dto.OrderFilter;
+import cat.itacademy.s04.t02.n03.fruit.model.Order;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveOrderRepositoryCustom {
+
+    Flux<Order> streamAll(OrderFilter filter);
+
+    Mono<Order> findAndUpdateFields(String id, Long expectedVersion, Order changes);
+
+    Mono<Order> findAndRemove(String id, Long expectedVersion);
+}
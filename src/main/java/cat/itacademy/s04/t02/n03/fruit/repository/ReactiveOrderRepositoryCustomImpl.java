@@ -0,0 +1,47 @@
+package cat.itacademy.s04.t02.n03.fruit.repository;
+
+import cat.itacademy.s04.t02.n03.fruit.dto.OrderFilter;
+import cat.itacademy.s04.t02.n03.fruit.model.Order;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * The fruit catalog is blocking, so fruit names in a filter are resolved on {@code boundedElastic} rather than on
+ * the event loop.
+ */
+public class ReactiveOrderRepositoryCustomImpl implements ReactiveOrderRepositoryCustom {
+
+    private static final int STREAM_BATCH_SIZE = 500;
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+    private final FruitCatalog fruitCatalog;
+
+    public ReactiveOrderRepositoryCustomImpl(ReactiveMongoTemplate reactiveMongoTemplate, FruitCatalog fruitCatalog) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+        this.fruitCatalog = fruitCatalog;
+    }
+
+    @Override
+    public Flux<Order> streamAll(OrderFilter filter) {
+        return Mono.fromCallable(() -> OrderQueries.filter(filter, fruitCatalog).cursorBatchSize(STREAM_BATCH_SIZE))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMapMany(query -> reactiveMongoTemplate.find(query, Order.class));
+    }
+
+    @Override
+    public Mono<Order> findAndUpdateFields(String id, Long expectedVersion, Order changes) {
+        return reactiveMongoTemplate.findAndModify(
+                OrderQueries.byIdAndVersion(id, expectedVersion),
+                OrderQueries.setFields(changes),
+                Order.class);
+    }
+
+    @Override
+    public Mono<Order> findAndRemove(String id, Long expectedVersion) {
+        return reactiveMongoTemplate.findAndRemove(
+                OrderQueries.byIdAndVersion(id, expectedVersion),
+                Order.class);
+    }
+}
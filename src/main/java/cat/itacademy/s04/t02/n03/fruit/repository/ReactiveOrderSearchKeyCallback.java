@@ -0,0 +1,22 @@
+package cat.itacademy.s04.t02.n03.fruit.repository;
+
+import cat.itacademy.s04.t02.n03.fruit.model.Order;
+import cat.itacademy.s04.t02.n03.fruit.model.OrderFields;
+import org.bson.Document;
+import org.reactivestreams.Publisher;
+import org.springframework.data.mongodb.core.mapping.event.ReactiveBeforeSaveCallback;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * {@link OrderSearchKeyCallback} for {@code ReactiveMongoTemplate}.
+ */
+@Component
+public class ReactiveOrderSearchKeyCallback implements ReactiveBeforeSaveCallback<Order> {
+
+    @Override
+    public Publisher<Order> onBeforeSave(Order order, Document document, String collection) {
+        document.put(OrderFields.CLIENT_KEY, OrderSearchKeys.of(order.getClientName()));
+        return Mono.just(order);
+    }
+}
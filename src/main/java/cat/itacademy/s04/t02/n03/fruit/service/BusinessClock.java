@@ -0,0 +1,60 @@
+package cat.itacademy.s04.t02.n03.fruit.service;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+/**
+ * Today's date in the business time zone, worked out once per day. Until the next midnight in that zone a read is
+ * a {@link Clock#millis()} call and a comparison, with no zone rules or date arithmetic on the request path. The
+ * wrapped {@link Clock} decides what "now" is, so tests can freeze or advance it.
+ */
+public class BusinessClock {
+
+    private final Clock clock;
+    private volatile Day day;
+
+    public BusinessClock(Clock clock) {
+        this.clock = clock;
+        this.day = dayAt(clock.millis());
+    }
+
+    public static BusinessClock system(ZoneId zone) {
+        return new BusinessClock(Clock.system(zone));
+    }
+
+    public ZoneId zone() {
+        return clock.getZone();
+    }
+
+    public LocalDate today() {
+        return current().today();
+    }
+
+    /** The first day an order can be delivered on: tomorrow. */
+    public LocalDate earliestDeliveryDate() {
+        return current().tomorrow();
+    }
+
+    private Day current() {
+        long now = clock.millis();
+        Day current = day;
+        if (now < current.startMillis() || now >= current.endMillis()) {
+            current = dayAt(now);
+            day = current;
+        }
+        return current;
+    }
+
+    private Day dayAt(long millis) {
+        ZoneId zone = clock.getZone();
+        LocalDate today = LocalDate.ofInstant(Instant.ofEpochMilli(millis), zone);
+        LocalDate tomorrow = today.plusDays(1);
+        return new Day(today, tomorrow,
+                today.atStartOfDay(zone).toInstant().toEpochMilli(),
+                tomorrow.atStartOfDay(zone).toInstant().toEpochMilli());
+    }
+
+    private record Day(LocalDate today, LocalDate tomorrow, long startMillis, long endMillis) {}
+}
@@ -0,0 +1,50 @@
+package cat.itacademy.s04.t02.n03.fruit.service;
+
+import cat.itacademy.s04.t02.n03.fruit.dto.FruitDemand;
+import cat.itacademy.s04.t02.n03.fruit.model.Order;
+import cat.itacademy.s04.t02.n03.fruit.model.OrderItem;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Accumulates the kilos each write adds to or removes from the {@code demand_by_day_fruit} rollup.
+ */
+public final class FruitDemandDeltas {
+
+    private final Map<Key, Long> deltas = new HashMap<>();
+
+    public FruitDemandDeltas add(Order order) {
+        return apply(order, 1);
+    }
+
+    public FruitDemandDeltas subtract(Order order) {
+        return apply(order, -1);
+    }
+
+    public List<FruitDemand> toList() {
+        List<FruitDemand> result = new ArrayList<>(deltas.size());
+        deltas.forEach((key, kilos) -> {
+            if (kilos != 0) {
+                result.add(new FruitDemand(key.deliveryDate(), key.fruitName(), kilos));
+            }
+        });
+        return result;
+    }
+
+    private FruitDemandDeltas apply(Order order, int sign) {
+        if (order.getItems() == null) {
+            return this;
+        }
+        for (OrderItem item : order.getItems()) {
+            deltas.merge(new Key(order.getDeliveryDate(), item.getFruitName()),
+                    (long) sign * item.getQuantityInKilos(), Long::sum);
+        }
+        return this;
+    }
+
+    private record Key(LocalDate deliveryDate, String fruitName) {}
+}
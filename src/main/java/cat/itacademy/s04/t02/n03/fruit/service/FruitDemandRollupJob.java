@@ -0,0 +1,139 @@
+package cat.itacademy.s04.t02.n03.fruit.service;
+
+import cat.itacademy.s04.t02.n03.fruit.config.FruitDemandRollupProperties;
+import cat.itacademy.s04.t02.n03.fruit.dto.FruitDemand;
+import cat.itacademy.s04.t02.n03.fruit.dto.FruitDemandRollupReport;
+import cat.itacademy.s04.t02.n03.fruit.dto.OrderFilter;
+import cat.itacademy.s04.t02.n03.fruit.model.DailyFruitDemand;
+import cat.itacademy.s04.t02.n03.fruit.model.Order;
+import cat.itacademy.s04.t02.n03.fruit.repository.DailyFruitDemandRepository;
+import cat.itacademy.s04.t02.n03.fruit.repository.OrderRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * Recomputes the {@code demand_by_day_fruit} rollup from {@code orders} and its archive and compares it with the
+ * stored rows, one delivery-date chunk per task. {@link #rebuild()} also rewrites the rows that differ. Writes that
+ * land in a chunk while it is being rebuilt can be overwritten, so rebuild during quiet periods and verify afterwards.
+ */
+@Slf4j
+@Component
+public class FruitDemandRollupJob {
+
+    private final OrderRepository orderRepository;
+    private final DailyFruitDemandRepository demandRepository;
+    private final FruitDemandRollupProperties properties;
+
+    public FruitDemandRollupJob(OrderRepository orderRepository, DailyFruitDemandRepository demandRepository,
+                                FruitDemandRollupProperties properties) {
+        this.orderRepository = orderRepository;
+        this.demandRepository = demandRepository;
+        this.properties = properties;
+    }
+
+    public FruitDemandRollupReport verify() {
+        return run(false);
+    }
+
+    public FruitDemandRollupReport rebuild() {
+        return run(true);
+    }
+
+    @Scheduled(cron = "${orders.rollup.repair-cron:-}")
+    void scheduledRebuild() {
+        FruitDemandRollupReport report = rebuild();
+        log.info("Demand rollup repaired {} rows across {} chunks", report.mismatches(), report.chunks());
+    }
+
+    private FruitDemandRollupReport run(boolean repair) {
+        Optional<LocalDate> first = earliest(orderRepository.findFirstByOrderByDeliveryDateAsc().map(Order::getDeliveryDate),
+                demandRepository.findFirstByOrderByDeliveryDateAsc().map(DailyFruitDemand::getDeliveryDate));
+        if (first.isEmpty()) {
+            return new FruitDemandRollupReport(null, null, 0, 0, repair);
+        }
+        LocalDate from = first.get();
+        LocalDate to = latest(orderRepository.findFirstByOrderByDeliveryDateDesc().map(Order::getDeliveryDate),
+                demandRepository.findFirstByOrderByDeliveryDateDesc().map(DailyFruitDemand::getDeliveryDate));
+
+        List<Future<Long>> chunks = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(properties.parallelism())) {
+            for (LocalDate start = from; !start.isAfter(to); start = start.plusDays(properties.chunkDays())) {
+                LocalDate chunkFrom = start;
+                LocalDate chunkTo = min(start.plusDays(properties.chunkDays() - 1L), to);
+                chunks.add(executor.submit(() -> checkChunk(chunkFrom, chunkTo, repair)));
+            }
+        }
+
+        long mismatches = 0;
+        for (Future<Long> chunk : chunks) {
+            mismatches += join(chunk);
+        }
+        return new FruitDemandRollupReport(from, to, chunks.size(), mismatches, repair);
+    }
+
+    private long checkChunk(LocalDate from, LocalDate to, boolean repair) {
+        Map<FruitDemandKey, FruitDemand> expected = new HashMap<>();
+        try (Stream<FruitDemand> totals = orderRepository.streamFruitDemand(new OrderFilter(null, from, to, null, true))) {
+            totals.forEach(total -> expected.put(FruitDemandKey.of(total), total));
+        }
+
+        List<FruitDemand> stale = new ArrayList<>();
+        try (Stream<FruitDemand> rows = demandRepository.streamRows(from, to)) {
+            rows.forEach(row -> {
+                FruitDemand total = expected.get(FruitDemandKey.of(row));
+                if (total == null) {
+                    stale.add(row);
+                } else if (total.totalKilos() == row.totalKilos()) {
+                    expected.remove(FruitDemandKey.of(row));
+                }
+            });
+        }
+
+        if (repair) {
+            demandRepository.overwrite(expected.values(), stale);
+        }
+        return expected.size() + stale.size();
+    }
+
+    private long join(Future<Long> chunk) {
+        try {
+            return chunk.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Demand rollup check interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Demand rollup check failed", e.getCause());
+        }
+    }
+
+    private static Optional<LocalDate> earliest(Optional<LocalDate> a, Optional<LocalDate> b) {
+        return Stream.concat(a.stream(), b.stream()).min(LocalDate::compareTo);
+    }
+
+    private static LocalDate latest(Optional<LocalDate> a, Optional<LocalDate> b) {
+        return Stream.concat(a.stream(), b.stream()).max(LocalDate::compareTo).orElseThrow();
+    }
+
+    private static LocalDate min(LocalDate a, LocalDate b) {
+        return a.isBefore(b) ? a : b;
+    }
+
+    private record FruitDemandKey(LocalDate deliveryDate, String fruitName) {
+        static FruitDemandKey of(FruitDemand demand) {
+            return new FruitDemandKey(demand.deliveryDate(), demand.fruitName());
+        }
+    }
+}
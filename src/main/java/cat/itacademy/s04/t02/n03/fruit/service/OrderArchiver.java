@@ -0,0 +1,256 @@
+package cat.itacademy.s04.t02.n03.fruit.service;
+
+import cat.itacademy.s04.t02.n03.fruit.config.MongoBulkhead;
+import cat.itacademy.s04.t02.n03.fruit.config.OrderArchiveProperties;
+import cat.itacademy.s04.t02.n03.fruit.dto.OrderArchiveReport;
+import cat.itacademy.s04.t02.n03.fruit.model.Order;
+import cat.itacademy.s04.t02.n03.fruit.repository.OrderArchiveCollections;
+import cat.itacademy.s04.t02.n03.fruit.repository.OrderArchivePartitions;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReplaceOptions;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Moves orders delivered more than the configured retention ago out of {@code orders} into one archive collection
+ * per delivery month, in {@code _id} order and {@code batchSize} orders at a time with a pause between batches.
+ * Each batch is copied to its partitions and to the id lookup first and only then removed in one bulk write, guarded
+ * by the version that was read; an order changed meanwhile keeps its live copy and loses the archived one, and an
+ * order deleted meanwhile loses the archived one too. A run holds a lease in
+ * {@value #LEASES}, renewed every batch, so runs from several nodes or from the endpoint never overlap. Rollup rows
+ * are left alone, since archived orders still count towards demand. Each step of a batch takes its own bulkhead
+ * permit, so a run holds none while it pauses.
+ */
+@Slf4j
+@Component
+public class OrderArchiver {
+
+    static final String LEASES = "leases";
+    static final String LEASE_ID = "orders-archive";
+    private static final ReplaceOptions UPSERT = new ReplaceOptions().upsert(true);
+
+    private final MongoTemplate mongoTemplate;
+    private final MongoBulkhead bulkhead;
+    private final BusinessClock clock;
+    private final OrderArchiveProperties properties;
+    private final OrderArchivePartitions partitions;
+    private final Set<String> indexedPartitions = ConcurrentHashMap.newKeySet();
+
+    public OrderArchiver(MongoTemplate mongoTemplate, MongoBulkhead bulkhead, BusinessClock clock,
+                         OrderArchiveProperties properties, OrderArchivePartitions partitions) {
+        this.mongoTemplate = mongoTemplate;
+        this.bulkhead = bulkhead;
+        this.clock = clock;
+        this.properties = properties;
+        this.partitions = partitions;
+    }
+
+    public OrderArchiveReport status() {
+        LocalDate cutoff = cutoff();
+        return new OrderArchiveReport(cutoff, 0, 0, countEligible(cutoff));
+    }
+
+    public OrderArchiveReport archive() {
+        LocalDate cutoff = cutoff();
+        String owner = UUID.randomUUID().toString();
+        if (!holdLease(owner)) {
+            log.info("Order archiver is already running elsewhere, skipping this run");
+            return status();
+        }
+        try {
+            return archive(cutoff, owner);
+        } finally {
+            bulkhead.supply(() -> mongoTemplate.remove(Query.query(where("_id").is(LEASE_ID).and("owner").is(owner)), LEASES));
+        }
+    }
+
+    private OrderArchiveReport archive(LocalDate cutoff, String owner) {
+        long archived = 0;
+        long conflicts = 0;
+        String lastId = null;
+
+        while (true) {
+            Query query = eligible(cutoff).with(Sort.by("id")).limit(properties.batchSize());
+            if (lastId != null) {
+                query.addCriteria(where("id").gt(lastId));
+            }
+            List<Order> batch = bulkhead.supply(() -> mongoTemplate.find(query, Order.class));
+            if (batch.isEmpty()) {
+                break;
+            }
+
+            bulkhead.run(() -> copy(batch));
+            List<Order> stale = bulkhead.supply(() -> removeUnchanged(batch));
+            bulkhead.run(() -> discardCopies(stale));
+            archived += batch.size() - stale.size();
+            conflicts += stale.size();
+            lastId = batch.getLast().getId();
+
+            if (batch.size() < properties.batchSize() || !pause()) {
+                break;
+            }
+            if (!holdLease(owner)) {
+                log.warn("Order archiver lost its lease, stopping after {} orders", archived);
+                break;
+            }
+        }
+
+        long remaining = countEligible(cutoff);
+        log.info("Order archiver moved {} orders delivered before {}, {} changed or deleted concurrently, {} remaining",
+                archived, cutoff, conflicts, remaining);
+        return new OrderArchiveReport(cutoff, archived, conflicts, remaining);
+    }
+
+    @Scheduled(cron = "${orders.archive.cron:-}")
+    void scheduledArchive() {
+        archive();
+    }
+
+    /**
+     * Takes the lease when it is free, expired or already ours, and extends it by {@code leaseTime}. A lease held by
+     * another run makes the upsert collide on {@code _id}.
+     */
+    private boolean holdLease(String owner) {
+        Date now = new Date();
+        Query available = Query.query(where("_id").is(LEASE_ID)
+                .orOperator(where("owner").is(owner), where("until").lt(now)));
+        Update take = new Update()
+                .set("owner", owner)
+                .set("until", new Date(now.getTime() + properties.leaseTime().toMillis()));
+        try {
+            bulkhead.supply(() -> mongoTemplate.upsert(available, take, LEASES));
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    private LocalDate cutoff() {
+        return clock.today().minus(properties.retention());
+    }
+
+    private long countEligible(LocalDate cutoff) {
+        return bulkhead.supply(() -> mongoTemplate.count(eligible(cutoff), Order.class));
+    }
+
+    private static Query eligible(LocalDate cutoff) {
+        return Query.query(where("deliveryDate").lt(cutoff));
+    }
+
+    private void copy(List<Order> batch) {
+        Map<String, List<ReplaceOneModel<Document>>> byPartition = new LinkedHashMap<>();
+        List<ReplaceOneModel<Document>> locations = new ArrayList<>(batch.size());
+        for (Order order : batch) {
+            String partition = OrderArchiveCollections.of(order.getDeliveryDate());
+            Document document = new Document();
+            mongoTemplate.getConverter().write(order, document);
+
+            byPartition.computeIfAbsent(partition, name -> new ArrayList<>())
+                    .add(new ReplaceOneModel<>(Filters.eq("_id", document.get("_id")), document, UPSERT));
+            locations.add(new ReplaceOneModel<>(Filters.eq("_id", document.get("_id")),
+                    new Document("_id", document.get("_id")).append(OrderArchiveCollections.LOOKUP_COLLECTION, partition),
+                    UPSERT));
+        }
+
+        byPartition.forEach((partition, documents) -> partition(partition).bulkWrite(documents, new BulkWriteOptions().ordered(false)));
+        mongoTemplate.getCollection(OrderArchiveCollections.LOOKUP).bulkWrite(locations, new BulkWriteOptions().ordered(false));
+    }
+
+    /**
+     * Removes, in one bulk write guarded by the version that was read, the live copies that are unchanged since then,
+     * and returns the orders whose archived copy must go: those changed meanwhile, and those a client deleted
+     * meanwhile, which must not come back from the archive.
+     */
+    private List<Order> removeUnchanged(List<Order> batch) {
+        Map<String, Long> live = liveVersions(batch);
+        List<Order> stale = new ArrayList<>();
+        List<Order> unchanged = new ArrayList<>();
+        for (Order order : batch) {
+            if (live.containsKey(order.getId()) && Objects.equals(live.get(order.getId()), order.getVersion())) {
+                unchanged.add(order);
+            } else {
+                stale.add(order);
+            }
+        }
+        if (unchanged.isEmpty()) {
+            return stale;
+        }
+
+        BulkOperations removal = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Order.class);
+        unchanged.forEach(order -> removal.remove(
+                Query.query(where("id").is(order.getId()).and("version").is(order.getVersion()))));
+        long removed = removal.execute().getDeletedCount();
+        if (removed < unchanged.size()) {
+            Map<String, Long> stillLive = liveVersions(unchanged);
+            unchanged.stream().filter(order -> stillLive.containsKey(order.getId())).forEach(stale::add);
+            long vanished = unchanged.size() - stillLive.size() - removed;
+            if (vanished > 0) {
+                log.warn("Order archiver kept the copies of {} orders deleted while their batch was removed", vanished);
+            }
+        }
+        return stale;
+    }
+
+    /** The current version of each order of {@code orders} that is still live, by id. */
+    private Map<String, Long> liveVersions(List<Order> orders) {
+        Query byIds = Query.query(where("id").in(orders.stream().map(Order::getId).toList()));
+        byIds.fields().include("version");
+        Map<String, Long> versions = new HashMap<>();
+        mongoTemplate.find(byIds, Order.class).forEach(order -> versions.put(order.getId(), order.getVersion()));
+        return versions;
+    }
+
+    private void discardCopies(List<Order> stale) {
+        for (Order order : stale) {
+            Query byId = Query.query(where("id").is(order.getId()));
+            mongoTemplate.remove(byId, Order.class, OrderArchiveCollections.of(order.getDeliveryDate()));
+            mongoTemplate.remove(byId, Order.class, OrderArchiveCollections.LOOKUP);
+        }
+    }
+
+    private MongoCollection<Document> partition(String name) {
+        if (indexedPartitions.add(name)) {
+            IndexResolver.create(mongoTemplate.getConverter().getMappingContext())
+                    .resolveIndexFor(Order.class)
+                    .forEach(index -> mongoTemplate.indexOps(name).createIndex(index));
+            partitions.add(name);
+        }
+        return mongoTemplate.getCollection(name);
+    }
+
+    private boolean pause() {
+        try {
+            Thread.sleep(properties.batchDelay());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package cat.itacademy.s04.t02.n03.fruit.service;
+
+import cat.itacademy.s04.t02.n03.fruit.exception.BadRequestException;
+import org.bson.types.ObjectId;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+final class OrderCursor {
+
+    private static final char KEY_SEPARATOR = ':';
+
+    private OrderCursor() {
+    }
+
+    static String encode(String lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(lastId.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** A cursor for results ranked by a sort key before the id; {@code lastKey} may be null. */
+    static String encode(String lastId, String lastKey) {
+        return encode(lastKey == null ? lastId : lastId + KEY_SEPARATOR + lastKey);
+    }
+
+    static String decode(String cursor) {
+        Position position = decodePosition(cursor);
+        if (position.lastKey() != null) {
+            throw new BadRequestException("Invalid cursor");
+        }
+        return position.lastId();
+    }
+
+    static Position decodePosition(String cursor) {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = value.indexOf(KEY_SEPARATOR);
+            String lastId = separator < 0 ? value : value.substring(0, separator);
+            if (ObjectId.isValid(lastId)) {
+                return new Position(lastId, separator < 0 ? null : value.substring(separator + 1));
+            }
+        } catch (IllegalArgumentException ignored) {
+            // falls through to the error below
+        }
+        throw new BadRequestException("Invalid cursor");
+    }
+
+    record Position(String lastId, String lastKey) {}
+}
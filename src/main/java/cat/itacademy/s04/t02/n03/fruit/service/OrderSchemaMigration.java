@@ -0,0 +1,107 @@
+package cat.itacademy.s04.t02.n03.fruit.service;
+
+import cat.itacademy.s04.t02.n03.fruit.dto.OrderSchemaMigrationReport;
+import cat.itacademy.s04.t02.n03.fruit.model.Order;
+import cat.itacademy.s04.t02.n03.fruit.model.OrderFields;
+import cat.itacademy.s04.t02.n03.fruit.repository.OrderSearchKeys;
+import com.mongodb.MongoCommandException;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.Sorts;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rewrites orders stored with the original long field names, or without a client-name search key, into the
+ * compact schema, in {@code _id} order and {@value #BATCH_SIZE} documents per bulk write. Each replace is guarded by the version that was read, so an order
+ * updated meanwhile is left for the next run. Once no legacy document remains, the indexes on the old field
+ * names are dropped.
+ */
+@Slf4j
+@Component
+public class OrderSchemaMigration {
+
+    static final int BATCH_SIZE = 1000;
+    private static final int INDEX_NOT_FOUND = 27;
+    private static final List<String> LEGACY_INDEXES = List.of("client_id_delivery_idx", "delivery_id_idx", "fruit_id_idx");
+    private static final Bson OUTDATED = Filters.or(
+            Filters.exists(OrderFields.LEGACY_CLIENT_NAME),
+            Filters.exists(OrderFields.LEGACY_DELIVERY_DATE),
+            Filters.exists(OrderFields.LEGACY_ITEMS),
+            Filters.exists(OrderFields.CLIENT_KEY, false));
+
+    private final MongoTemplate mongoTemplate;
+
+    public OrderSchemaMigration(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    public OrderSchemaMigrationReport status() {
+        return new OrderSchemaMigrationReport(0, 0, orders().countDocuments(OUTDATED));
+    }
+
+    public OrderSchemaMigrationReport migrate() {
+        long migrated = 0;
+        long conflicts = 0;
+        Object lastId = null;
+
+        while (true) {
+            Bson filter = lastId == null ? OUTDATED : Filters.and(OUTDATED, Filters.gt("_id", lastId));
+            List<Document> batch = orders().find(filter).sort(Sorts.ascending("_id")).limit(BATCH_SIZE).into(new ArrayList<>());
+            if (batch.isEmpty()) {
+                break;
+            }
+
+            List<ReplaceOneModel<Document>> replacements = new ArrayList<>(batch.size());
+            for (Document legacy : batch) {
+                replacements.add(new ReplaceOneModel<>(
+                        Filters.and(Filters.eq("_id", legacy.get("_id")), Filters.eq(OrderFields.VERSION, legacy.get(OrderFields.VERSION))),
+                        compact(legacy)));
+            }
+            BulkWriteResult result = orders().bulkWrite(replacements, new BulkWriteOptions().ordered(false));
+            migrated += result.getModifiedCount();
+            conflicts += batch.size() - result.getMatchedCount();
+            lastId = batch.get(batch.size() - 1).get("_id");
+        }
+
+        long remaining = orders().countDocuments(OUTDATED);
+        if (remaining == 0) {
+            dropLegacyIndexes();
+        }
+        log.info("Order schema migration rewrote {} orders, {} changed concurrently, {} remaining", migrated, conflicts, remaining);
+        return new OrderSchemaMigrationReport(migrated, conflicts, remaining);
+    }
+
+    private Document compact(Document legacy) {
+        Order order = mongoTemplate.getConverter().read(Order.class, legacy);
+        Document compact = new Document();
+        mongoTemplate.getConverter().write(order, compact);
+        compact.put(OrderFields.CLIENT_KEY, OrderSearchKeys.of(order.getClientName()));
+        return compact;
+    }
+
+    private void dropLegacyIndexes() {
+        for (String index : LEGACY_INDEXES) {
+            try {
+                orders().dropIndex(index);
+            } catch (MongoCommandException e) {
+                if (e.getErrorCode() != INDEX_NOT_FOUND) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private MongoCollection<Document> orders() {
+        return mongoTemplate.getCollection(mongoTemplate.getCollectionName(Order.class));
+    }
+}
@@ -3,11 +3,19 @@ package cat.itacademy.s04.t02.n03.fruit.service;
 import cat.itacademy.s04.t02.n03.fruit.dto.*;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface OrderService {
     OrderResponse createOrder(OrderCreateRequest request);
-    List<OrderResponse> getAllOrders();
-    OrderResponse getOrderById(String id);
-    OrderResponse updateOrder(String id, OrderCreateRequest request);
-    void deleteOrder(String id);
+    OrderResponse acceptOrder(OrderCreateRequest request);
+    List<OrderBatchItemResult> createOrders(List<OrderCreateRequest> requests);
+    OrderPage getAllOrders(OrderFilter filter, String cursor, int limit, OrderProjection fields);
+
+    OrderPage searchOrders(String clientName, String fruitName, String cursor, int limit);
+    void streamAllOrders(OrderFilter filter, OrderProjection fields, Consumer<OrderResponse> consumer);
+    void streamFruitDemand(OrderFilter filter, Consumer<FruitDemand> consumer);
+    OrderResponse getOrderById(String id, OrderProjection fields);
+    OrderResponse updateOrder(String id, OrderCreateRequest request, Long expectedVersion);
+    OrderResponse patchOrder(String id, OrderPatchRequest request, Long expectedVersion);
+    void deleteOrder(String id, Long expectedVersion);
 }
@@ -1,74 +1,285 @@
 package cat.itacademy.s04.t02.n03.fruit.service;
 
+import cat.itacademy.s04.t02.n03.fruit.dto.FruitDemand;
+import cat.itacademy.s04.t02.n03.fruit.dto.OrderBatchItemResult;
 import cat.itacademy.s04.t02.n03.fruit.dto.OrderCreateRequest;
+import cat.itacademy.s04.t02.n03.fruit.dto.OrderFilter;
+import cat.itacademy.s04.t02.n03.fruit.dto.OrderPage;
+import cat.itacademy.s04.t02.n03.fruit.dto.OrderPatchRequest;
+import cat.itacademy.s04.t02.n03.fruit.dto.OrderProjection;
 import cat.itacademy.s04.t02.n03.fruit.dto.OrderResponse;
+import cat.itacademy.s04.t02.n03.fruit.exception.BadRequestException;
+import cat.itacademy.s04.t02.n03.fruit.exception.ConflictException;
 import cat.itacademy.s04.t02.n03.fruit.exception.NotFoundException;
+import cat.itacademy.s04.t02.n03.fruit.exception.PreconditionFailedException;
 import cat.itacademy.s04.t02.n03.fruit.model.Order;
-import cat.itacademy.s04.t02.n03.fruit.model.OrderItem;
+import cat.itacademy.s04.t02.n03.fruit.repository.DailyFruitDemandRepository;
 import cat.itacademy.s04.t02.n03.fruit.repository.OrderRepository;
+import cat.itacademy.s04.t02.n03.fruit.repository.OrderSearchKeys;
+import cat.itacademy.s04.t02.n03.fruit.service.cache.OrderCache;
 import cat.itacademy.s04.t02.n03.fruit.service.mapper.OrderMapper;
+import cat.itacademy.s04.t02.n03.fruit.service.writebehind.OrderWriteBehind;
+import io.micrometer.observation.annotation.Observed;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
+@Observed(name = "orders.service")
 public class OrderServiceImpl implements OrderService {
 
+    static final int MAX_PAGE_SIZE = 1000;
+    static final int BATCH_CHUNK_SIZE = 1000;
+    static final int MAX_PATCH_ATTEMPTS = 3;
+    static final NotFoundException ORDER_NOT_FOUND = NotFoundException.stackless("Order not found");
+
     private final OrderRepository orderRepository;
+    private final DailyFruitDemandRepository demandRepository;
     private final OrderMapper mapper;
+    private final OrderCache orderCache;
+    private final OrderWriteBehind writeBehind;
+
+    @Autowired
+    public OrderServiceImpl(OrderRepository orderRepository, DailyFruitDemandRepository demandRepository,
+                            OrderMapper mapper, OrderCache orderCache, ObjectProvider<OrderWriteBehind> writeBehind) {
+        this(orderRepository, demandRepository, mapper, orderCache, writeBehind.getIfAvailable(() -> OrderWriteBehind.NONE));
+    }
+
+    public OrderServiceImpl(OrderRepository orderRepository, DailyFruitDemandRepository demandRepository,
+                            OrderMapper mapper, OrderCache orderCache) {
+        this(orderRepository, demandRepository, mapper, orderCache, OrderWriteBehind.NONE);
+    }
 
-    public OrderServiceImpl(OrderRepository orderRepository, OrderMapper mapper) {
+    public OrderServiceImpl(OrderRepository orderRepository, DailyFruitDemandRepository demandRepository,
+                            OrderMapper mapper, OrderCache orderCache, OrderWriteBehind writeBehind) {
         this.orderRepository = orderRepository;
+        this.demandRepository = demandRepository;
         this.mapper = mapper;
+        this.orderCache = orderCache;
+        this.writeBehind = writeBehind;
     }
 
     @Override
     public OrderResponse createOrder(OrderCreateRequest request) {
         Order order = mapper.toEntity(request);
         Order saved = orderRepository.save(order);
+        demandRepository.increment(new FruitDemandDeltas().add(saved).toList());
 
-        return mapper.toResponse(saved);
+        OrderResponse response = mapper.toResponse(saved);
+        orderCache.put(response);
+        return response;
     }
 
     @Override
-    public List<OrderResponse> getAllOrders() {
-        return orderRepository.findAll().stream().map(mapper::toResponse).toList();
+    public OrderResponse acceptOrder(OrderCreateRequest request) {
+        Order order = mapper.toEntity(request);
+        order.setId(new ObjectId().toHexString());
+        order.setVersion(0L);
+        return writeBehind.append(order);
     }
 
     @Override
-    public OrderResponse getOrderById(String id) {
-        Order order = orderRepository.findById(id)
-                .orElseThrow(() -> new NotFoundException("Order not found"));
+    public List<OrderBatchItemResult> createOrders(List<OrderCreateRequest> requests) {
+        OrderBatchItemResult[] results = new OrderBatchItemResult[requests.size()];
+        List<Order> chunk = new ArrayList<>(BATCH_CHUNK_SIZE);
+        List<Integer> chunkIndexes = new ArrayList<>(BATCH_CHUNK_SIZE);
+
+        for (int i = 0; i < requests.size(); i++) {
+            OrderCreateRequest request = requests.get(i);
+            if (request == null) {
+                results[i] = OrderBatchItemResult.failed(i, "Malformed order");
+                continue;
+            }
+
+            try {
+                Order order = mapper.toEntity(request);
+                order.setId(new ObjectId().toHexString());
+                chunk.add(order);
+                chunkIndexes.add(i);
+            } catch (BadRequestException e) {
+                results[i] = OrderBatchItemResult.failed(i, e.getMessage());
+            }
+
+            if (chunk.size() == BATCH_CHUNK_SIZE) {
+                insertChunk(chunk, chunkIndexes, results);
+                chunk = new ArrayList<>(BATCH_CHUNK_SIZE);
+                chunkIndexes = new ArrayList<>(BATCH_CHUNK_SIZE);
+            }
+        }
+
+        if (!chunk.isEmpty()) {
+            insertChunk(chunk, chunkIndexes, results);
+        }
 
-        return mapper.toResponse(order);
+        return Arrays.asList(results);
     }
 
     @Override
-    public OrderResponse updateOrder(String id, OrderCreateRequest request) {
-        Order existing = orderRepository.findById(id)
-                .orElseThrow(() -> new NotFoundException("Order not found"));
+    public OrderPage getAllOrders(OrderFilter filter, String cursor, int limit, OrderProjection fields) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new BadRequestException("Limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        String afterId = cursor == null ? null : OrderCursor.decode(cursor);
+        List<Order> orders = orderRepository.findPage(filter, afterId, limit + 1, fields);
 
-        existing.setClientName(request.clientName());
-        existing.setDeliveryDate(request.deliveryDate());
+        boolean hasMore = orders.size() > limit;
+        List<Order> pageOrders = hasMore ? orders.subList(0, limit) : orders;
+        String nextCursor = hasMore ? OrderCursor.encode(pageOrders.get(limit - 1).getId()) : null;
 
-        List<OrderItem> items = request.items().stream()
-                .map(i -> new OrderItem(i.fruitName(), i.quantityInKilos()))
-                .toList();
+        return new OrderPage(pageOrders.stream().map(mapper::toResponse).toList(), nextCursor);
+    }
+
+    @Override
+    public OrderPage searchOrders(String clientName, String fruitName, String cursor, int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new BadRequestException("Limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        String clientPrefix = clientName == null || clientName.isBlank() ? null : OrderSearchKeys.of(clientName);
+        String fruitPrefix = fruitName == null || fruitName.isBlank() ? null : fruitName.strip();
+        if (clientPrefix == null && fruitPrefix == null) {
+            throw new BadRequestException("clientName or fruitName is required");
+        }
+        OrderCursor.Position after = cursor == null ? null : OrderCursor.decodePosition(cursor);
+        if (after != null && (clientPrefix == null) != (after.lastKey() == null)) {
+            throw new BadRequestException("Invalid cursor");
+        }
 
-        existing.setItems(items);
+        List<Order> orders = orderRepository.search(clientPrefix, fruitPrefix,
+                after == null ? null : after.lastKey(), after == null ? null : after.lastId(), limit + 1);
 
-        Order saved = orderRepository.save(existing);
+        boolean hasMore = orders.size() > limit;
+        List<Order> pageOrders = hasMore ? orders.subList(0, limit) : orders;
+        String nextCursor = null;
+        if (hasMore) {
+            Order last = pageOrders.get(limit - 1);
+            nextCursor = OrderCursor.encode(last.getId(), clientPrefix == null ? null : OrderSearchKeys.of(last.getClientName()));
+        }
+
+        return new OrderPage(pageOrders.stream().map(mapper::toResponse).toList(), nextCursor);
+    }
 
-        return mapper.toResponse(saved);
+    @Override
+    public void streamAllOrders(OrderFilter filter, OrderProjection fields, Consumer<OrderResponse> consumer) {
+        try (Stream<Order> orders = orderRepository.streamAll(filter, fields)) {
+            orders.map(mapper::toResponse).forEach(consumer);
+        }
     }
 
     @Override
-    public void deleteOrder(String id) {
-        Order order = orderRepository.findById(id)
-                .orElseThrow(() -> new NotFoundException("Order not found"));
+    public void streamFruitDemand(OrderFilter filter, Consumer<FruitDemand> consumer) {
+        try (Stream<FruitDemand> demand = filter.clientName() == null
+                ? demandRepository.streamDemand(filter)
+                : orderRepository.streamFruitDemand(filter)) {
+            demand.forEach(consumer);
+        }
+    }
 
-        orderRepository.delete(order);
+    @Override
+    public OrderResponse getOrderById(String id, OrderProjection fields) {
+        Optional<OrderResponse> pending = writeBehind.pending(id);
+        if (pending.isPresent()) {
+            return fields.apply(pending.get());
+        }
+        if (fields.isAll()) {
+            return orderCache.get(id, key -> orderRepository.findById(key)
+                    .or(() -> orderRepository.findArchivedById(key, fields))
+                    .map(mapper::toResponse)
+                    .orElseThrow(() -> ORDER_NOT_FOUND));
+        }
+        return orderCache.getIfPresent(id)
+                .map(fields::apply)
+                .orElseGet(() -> orderRepository.findById(id, fields)
+                        .or(() -> orderRepository.findArchivedById(id, fields))
+                        .map(mapper::toResponse)
+                        .orElseThrow(() -> ORDER_NOT_FOUND));
     }
 
-}
+    @Override
+    public OrderResponse updateOrder(String id, OrderCreateRequest request, Long expectedVersion) {
+        Order changes = mapper.toEntity(request);
 
+        writeBehind.awaitFlushed(id);
+
+        Order previous = orderRepository.findAndUpdateFields(id, expectedVersion, changes)
+                .orElseThrow(() -> missingOrStale(id, expectedVersion));
+
+        Order updated = new Order(id, changes.getClientName(), changes.getDeliveryDate(), changes.getItems());
+        updated.setVersion(previous.getVersion() == null ? 1L : previous.getVersion() + 1);
+        demandRepository.increment(new FruitDemandDeltas().subtract(previous).add(updated).toList());
+
+        OrderResponse response = mapper.toResponse(updated);
+        orderCache.put(response);
+        return response;
+    }
+
+    @Override
+    public OrderResponse patchOrder(String id, OrderPatchRequest request, Long expectedVersion) {
+        writeBehind.awaitFlushed(id);
+
+        for (int attempt = 0; attempt < MAX_PATCH_ATTEMPTS; attempt++) {
+            Order current = orderRepository.findById(id)
+                    .orElseThrow(() -> missingOrStale(id, null));
+            if (expectedVersion != null && !expectedVersion.equals(current.getVersion())) {
+                throw missingOrStale(id, expectedVersion);
+            }
+
+            Order patched = mapper.applyPatch(current, request);
+            Optional<Order> updated = orderRepository.findAndPatch(current, patched);
+            if (updated.isPresent()) {
+                demandRepository.increment(new FruitDemandDeltas().subtract(current).add(updated.get()).toList());
+
+                OrderResponse response = mapper.toResponse(updated.get());
+                orderCache.put(response);
+                return response;
+            }
+            if (expectedVersion != null) {
+                throw missingOrStale(id, expectedVersion);
+            }
+        }
+        throw new ConflictException("Order is being modified concurrently, try again");
+    }
+
+    @Override
+    public void deleteOrder(String id, Long expectedVersion) {
+        writeBehind.awaitFlushed(id);
+        Order deleted = orderRepository.findAndRemove(id, expectedVersion)
+                .orElseThrow(() -> missingOrStale(id, expectedVersion));
+        orderCache.evict(id);
+
+        demandRepository.increment(new FruitDemandDeltas().subtract(deleted).toList());
+    }
+
+    private RuntimeException missingOrStale(String id, Long expectedVersion) {
+        orderCache.evict(id);
+        if (expectedVersion != null && orderRepository.existsById(id)) {
+            return new PreconditionFailedException("Order has been modified");
+        }
+        return ORDER_NOT_FOUND;
+    }
+
+    private void insertChunk(List<Order> chunk, List<Integer> chunkIndexes, OrderBatchItemResult[] results) {
+        Map<Integer, String> errors = orderRepository.insertUnordered(chunk);
+        FruitDemandDeltas deltas = new FruitDemandDeltas();
+
+        for (int i = 0; i < chunk.size(); i++) {
+            int index = chunkIndexes.get(i);
+            String error = errors.get(i);
+            if (error == null) {
+                deltas.add(chunk.get(i));
+                results[index] = OrderBatchItemResult.created(index, chunk.get(i).getId());
+            } else {
+                results[index] = OrderBatchItemResult.failed(index, error);
+            }
+        }
+        demandRepository.increment(deltas.toList());
+    }
+}
@@ -0,0 +1,13 @@
+package cat.itacademy.s04.t02.n03.fruit.service;
+
+import cat.itacademy.s04.t02.n03.fruit.dto.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveOrderService {
+    Mono<OrderResponse> createOrder(OrderCreateRequest request);
+    Flux<OrderResponse> getAllOrders(OrderFilter filter);
+    Mono<OrderResponse> getOrderById(String id);
+    Mono<OrderResponse> updateOrder(String id, OrderCreateRequest request, Long expectedVersion);
+    Mono<Void> deleteOrder(String id, Long expectedVersion);
+}
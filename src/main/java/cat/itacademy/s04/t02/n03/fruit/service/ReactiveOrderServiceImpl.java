@@ -0,0 +1,105 @@
+package cat.itacademy.s04.t02.n03.fruit.service;
+
+import cat.itacademy.s04.t02.n03.fruit.dto.OrderCreateRequest;
+import cat.itacademy.s04.t02.n03.fruit.dto.OrderFilter;
+import cat.itacademy.s04.t02.n03.fruit.dto.OrderResponse;
+import cat.itacademy.s04.t02.n03.fruit.exception.PreconditionFailedException;
+import cat.itacademy.s04.t02.n03.fruit.model.Order;
+import cat.itacademy.s04.t02.n03.fruit.model.OrderItem;
+import cat.itacademy.s04.t02.n03.fruit.repository.DailyFruitDemandRepository;
+import cat.itacademy.s04.t02.n03.fruit.repository.FruitCatalog;
+import cat.itacademy.s04.t02.n03.fruit.repository.ReactiveOrderRepository;
+import cat.itacademy.s04.t02.n03.fruit.service.mapper.OrderMapper;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * WebFlux counterpart of {@link OrderServiceImpl}. Writes keep the {@code demand_by_day_fruit} rollup in step like
+ * the servlet ones do. The rollup repository and the fruit catalog are blocking, so the deltas are applied, and the
+ * fruit ids the item converter needs are resolved, on {@code boundedElastic}.
+ */
+@Service
+public class ReactiveOrderServiceImpl implements ReactiveOrderService {
+
+    private final ReactiveOrderRepository orderRepository;
+    private final DailyFruitDemandRepository demandRepository;
+    private final FruitCatalog fruitCatalog;
+    private final OrderMapper mapper;
+
+    public ReactiveOrderServiceImpl(ReactiveOrderRepository orderRepository,
+                                    DailyFruitDemandRepository demandRepository, FruitCatalog fruitCatalog,
+                                    OrderMapper mapper) {
+        this.orderRepository = orderRepository;
+        this.demandRepository = demandRepository;
+        this.fruitCatalog = fruitCatalog;
+        this.mapper = mapper;
+    }
+
+    @Override
+    public Mono<OrderResponse> createOrder(OrderCreateRequest request) {
+        return toEntity(request)
+                .flatMap(orderRepository::save)
+                .flatMap(saved -> increment(new FruitDemandDeltas().add(saved)).thenReturn(saved))
+                .map(mapper::toResponse);
+    }
+
+    @Override
+    public Flux<OrderResponse> getAllOrders(OrderFilter filter) {
+        return orderRepository.streamAll(filter).map(mapper::toResponse);
+    }
+
+    @Override
+    public Mono<OrderResponse> getOrderById(String id) {
+        return orderRepository.findById(id)
+                .switchIfEmpty(Mono.error(OrderServiceImpl.ORDER_NOT_FOUND))
+                .map(mapper::toResponse);
+    }
+
+    @Override
+    public Mono<OrderResponse> updateOrder(String id, OrderCreateRequest request, Long expectedVersion) {
+        return toEntity(request)
+                .flatMap(changes -> orderRepository.findAndUpdateFields(id, expectedVersion, changes)
+                        .switchIfEmpty(Mono.defer(() -> missingOrStale(id, expectedVersion)))
+                        .flatMap(previous -> {
+                            Order updated = new Order(id, changes.getClientName(), changes.getDeliveryDate(), changes.getItems());
+                            updated.setVersion(previous.getVersion() == null ? 1L : previous.getVersion() + 1);
+                            return increment(new FruitDemandDeltas().subtract(previous).add(updated)).thenReturn(updated);
+                        }))
+                .map(mapper::toResponse);
+    }
+
+    @Override
+    public Mono<Void> deleteOrder(String id, Long expectedVersion) {
+        return orderRepository.findAndRemove(id, expectedVersion)
+                .switchIfEmpty(Mono.defer(() -> missingOrStale(id, expectedVersion)))
+                .flatMap(deleted -> increment(new FruitDemandDeltas().subtract(deleted)));
+    }
+
+    private Mono<Order> toEntity(OrderCreateRequest request) {
+        return Mono.fromCallable(() -> {
+                    Order order = mapper.toEntity(request);
+                    for (OrderItem item : order.getItems()) {
+                        fruitCatalog.idOf(item.getFruitName());
+                    }
+                    return order;
+                })
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private Mono<Void> increment(FruitDemandDeltas deltas) {
+        return Mono.<Void>fromRunnable(() -> demandRepository.increment(deltas.toList()))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private <T> Mono<T> missingOrStale(String id, Long expectedVersion) {
+        if (expectedVersion == null) {
+            return Mono.error(OrderServiceImpl.ORDER_NOT_FOUND);
+        }
+        return orderRepository.existsById(id)
+                .flatMap(exists -> Mono.error(exists
+                        ? new PreconditionFailedException("Order has been modified")
+                        : OrderServiceImpl.ORDER_NOT_FOUND));
+    }
+}
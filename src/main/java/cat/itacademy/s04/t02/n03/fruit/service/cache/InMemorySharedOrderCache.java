@@ -0,0 +1,30 @@
+package cat.itacademy.s04.t02.n03.fruit.service.cache;
+
+import cat.itacademy.s04.t02.n03.fruit.dto.OrderResponse;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Single-process stand-in for a distributed {@link SharedOrderCache}, used in tests.
+ */
+public class InMemorySharedOrderCache implements SharedOrderCache {
+
+    private final Map<String, OrderResponse> orders = new ConcurrentHashMap<>();
+
+    @Override
+    public Optional<OrderResponse> get(String id) {
+        return Optional.ofNullable(orders.get(id));
+    }
+
+    @Override
+    public void put(OrderResponse order) {
+        orders.put(order.id(), order);
+    }
+
+    @Override
+    public void evict(String id) {
+        orders.remove(id);
+    }
+}
@@ -0,0 +1,88 @@
+package cat.itacademy.s04.t02.n03.fruit.service.cache;
+
+import cat.itacademy.s04.t02.n03.fruit.config.OrderCacheProperties;
+import cat.itacademy.s04.t02.n03.fruit.dto.OrderResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Two-tier read-through cache of orders by id: a bounded in-process Caffeine cache in front of an
+ * optional {@link SharedOrderCache}. Local entries expire after {@code orders.cache.ttl}, which bounds
+ * how long another node's write can stay invisible here.
+ */
+@Component
+public class OrderCache {
+
+    private final Cache<String, OrderResponse> local;
+    private final SharedOrderCache shared;
+    private final Counter sharedHits;
+    private final Counter sharedMisses;
+
+    @Autowired
+    public OrderCache(OrderCacheProperties properties, ObjectProvider<SharedOrderCache> shared,
+                      MeterRegistry meterRegistry) {
+        this(properties, shared.getIfAvailable(() -> SharedOrderCache.NONE), meterRegistry);
+    }
+
+    public OrderCache(OrderCacheProperties properties, SharedOrderCache shared, MeterRegistry meterRegistry) {
+        this.local = Caffeine.newBuilder()
+                .maximumSize(properties.maxSize())
+                .expireAfterWrite(properties.ttl())
+                .recordStats()
+                .build();
+        this.shared = shared;
+
+        CaffeineCacheMetrics.monitor(meterRegistry, local, "orders");
+        this.sharedHits = Counter.builder("orders.cache.shared.gets")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.sharedMisses = Counter.builder("orders.cache.shared.gets")
+                .tag("result", "miss")
+                .register(meterRegistry);
+    }
+
+    public OrderResponse get(String id, Function<String, OrderResponse> loader) {
+        return local.get(id, key -> shared.get(key)
+                .map(order -> {
+                    sharedHits.increment();
+                    return order;
+                })
+                .orElseGet(() -> {
+                    sharedMisses.increment();
+                    OrderResponse order = loader.apply(key);
+                    shared.put(order);
+                    return order;
+                }));
+    }
+
+    public Optional<OrderResponse> getIfPresent(String id) {
+        return Optional.ofNullable(local.getIfPresent(id));
+    }
+
+    public void put(OrderResponse order) {
+        local.put(order.id(), order);
+        shared.put(order);
+    }
+
+    public void evict(String id) {
+        shared.evict(id);
+        local.invalidate(id);
+    }
+
+    public void evictLocal(String id) {
+        local.invalidate(id);
+    }
+
+    public void evictAllLocal() {
+        local.invalidateAll();
+    }
+}
@@ -0,0 +1,180 @@
+package cat.itacademy.s04.t02.n03.fruit.service.cache;
+
+import cat.itacademy.s04.t02.n03.fruit.config.OrderChangeStreamProperties;
+import cat.itacademy.s04.t02.n03.fruit.model.ChangeStreamCheckpoint;
+import cat.itacademy.s04.t02.n03.fruit.repository.ChangeStreamCheckpointRepository;
+import com.mongodb.MongoException;
+import com.mongodb.MongoServerException;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tails the {@code orders} change stream and drops local cache entries for orders written by any node.
+ * The resume token is checkpointed so a restarted listener replays the events it missed; if the oplog no
+ * longer holds them, the whole local cache is cleared instead.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "orders.cache.change-stream.enabled", havingValue = "true")
+public class OrderChangeStreamListener implements SmartLifecycle {
+
+    private static final List<Bson> PIPELINE = List.of(Aggregates.match(Filters.in("operationType",
+            "update", "replace", "delete", "drop", "rename", "dropDatabase", "invalidate")));
+    private static final Set<Integer> HISTORY_LOST_CODES = Set.of(280, 286);
+
+    private final MongoTemplate mongoTemplate;
+    private final ChangeStreamCheckpointRepository checkpoints;
+    private final OrderCache orderCache;
+    private final OrderChangeStreamProperties properties;
+
+    private volatile boolean running;
+    private Thread worker;
+    private BsonDocument resumeToken;
+    private long lastCheckpointNanos;
+
+    public OrderChangeStreamListener(MongoTemplate mongoTemplate, ChangeStreamCheckpointRepository checkpoints,
+                                     OrderCache orderCache, OrderChangeStreamProperties properties) {
+        this.mongoTemplate = mongoTemplate;
+        this.checkpoints = checkpoints;
+        this.orderCache = orderCache;
+        this.properties = properties;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        worker = Thread.ofPlatform()
+                .name("orders-change-stream")
+                .daemon(true)
+                .start(this::run);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        try {
+            worker.join(properties.retryDelay().plusSeconds(2));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void run() {
+        boolean checkpointLoaded = false;
+
+        while (running) {
+            try {
+                if (!checkpointLoaded) {
+                    resumeToken = checkpoints.findById(properties.checkpointId())
+                            .map(checkpoint -> BsonDocument.parse(checkpoint.getResumeToken()))
+                            .orElse(null);
+                    checkpointLoaded = true;
+                }
+                tail();
+            } catch (MongoServerException e) {
+                if (HISTORY_LOST_CODES.contains(e.getCode())) {
+                    log.warn("Order change stream history lost, clearing the local order cache", e);
+                    orderCache.evictAllLocal();
+                    resumeToken = null;
+                } else {
+                    retryLater(e);
+                }
+            } catch (MongoException | DataAccessException e) {
+                retryLater(e);
+            }
+        }
+        checkpoint(true);
+    }
+
+    private MongoChangeStreamCursor<ChangeStreamDocument<Document>> open() {
+        ChangeStreamIterable<Document> stream = mongoTemplate.getCollection("orders")
+                .watch(PIPELINE)
+                .maxAwaitTime(1, TimeUnit.SECONDS);
+
+        return (resumeToken == null ? stream : stream.resumeAfter(resumeToken)).cursor();
+    }
+
+    private void tail() {
+        try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = open()) {
+            while (running) {
+                ChangeStreamDocument<Document> change = cursor.tryNext();
+                if (change != null && !apply(change)) {
+                    resumeToken = null;
+                    return;
+                }
+                if (cursor.getResumeToken() != null) {
+                    resumeToken = cursor.getResumeToken();
+                }
+                checkpoint(false);
+            }
+        }
+    }
+
+    private boolean apply(ChangeStreamDocument<Document> change) {
+        switch (change.getOperationType()) {
+            case UPDATE, REPLACE, DELETE -> orderCache.evictLocal(idOf(change.getDocumentKey()));
+            case INVALIDATE -> {
+                orderCache.evictAllLocal();
+                return false;
+            }
+            default -> orderCache.evictAllLocal();
+        }
+        return true;
+    }
+
+    private String idOf(BsonDocument documentKey) {
+        BsonValue id = documentKey.get("_id");
+        return id.isObjectId() ? id.asObjectId().getValue().toHexString() : id.asString().getValue();
+    }
+
+    private void checkpoint(boolean force) {
+        long now = System.nanoTime();
+        if (resumeToken == null || !force && now - lastCheckpointNanos < properties.checkpointInterval().toNanos()) {
+            return;
+        }
+        try {
+            checkpoints.save(new ChangeStreamCheckpoint(properties.checkpointId(), resumeToken.toJson(), Instant.now()));
+            lastCheckpointNanos = now;
+        } catch (DataAccessException e) {
+            log.warn("Could not checkpoint the order change stream", e);
+        }
+    }
+
+    private void retryLater(RuntimeException e) {
+        if (!running) {
+            return;
+        }
+        log.warn("Order change stream failed, retrying in {}", properties.retryDelay(), e);
+        long deadline = System.nanoTime() + properties.retryDelay().toNanos();
+        try {
+            while (running && System.nanoTime() < deadline) {
+                Thread.sleep(100);
+            }
+        } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package cat.itacademy.s04.t02.n03.fruit.service.cache;
+
+import cat.itacademy.s04.t02.n03.fruit.dto.OrderResponse;
+
+import java.util.Optional;
+
+/**
+ * Second cache tier shared by every node, e.g. backed by Redis or Hazelcast.
+ * Register an implementation as a bean to enable it.
+ */
+public interface SharedOrderCache {
+
+    SharedOrderCache NONE = new SharedOrderCache() {
+        @Override
+        public Optional<OrderResponse> get(String id) {
+            return Optional.empty();
+        }
+
+        @Override
+        public void put(OrderResponse order) {
+        }
+
+        @Override
+        public void evict(String id) {
+        }
+    };
+
+    Optional<OrderResponse> get(String id);
+
+    void put(OrderResponse order);
+
+    void evict(String id);
+}
@@ -0,0 +1,8 @@
+package cat.itacademy.s04.t02.n03.fruit.service.idempotency;
+
+import cat.itacademy.s04.t02.n03.fruit.dto.OrderResponse;
+
+public record IdempotentResponse(
+        OrderResponse response,
+        boolean replayed
+) {}
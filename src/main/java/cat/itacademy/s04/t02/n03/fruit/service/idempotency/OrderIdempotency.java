@@ -0,0 +1,255 @@
+package cat.itacademy.s04.t02.n03.fruit.service.idempotency;
+
+import cat.itacademy.s04.t02.n03.fruit.config.MongoBulkhead;
+import cat.itacademy.s04.t02.n03.fruit.config.OrderIdempotencyProperties;
+import cat.itacademy.s04.t02.n03.fruit.dto.OrderCreateRequest;
+import cat.itacademy.s04.t02.n03.fruit.dto.OrderResponse;
+import cat.itacademy.s04.t02.n03.fruit.exception.BadRequestException;
+import cat.itacademy.s04.t02.n03.fruit.exception.ConflictException;
+import cat.itacademy.s04.t02.n03.fruit.exception.ServiceUnavailableException;
+import cat.itacademy.s04.t02.n03.fruit.exception.UnprocessableEntityException;
+import cat.itacademy.s04.t02.n03.fruit.model.IdempotencyRecord;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolationException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Runs an order creation at most once per {@code Idempotency-Key}. The key is claimed in {@code idempotency_keys}
+ * before the action runs and the response is stored there afterwards, so a retry on any node gets the stored
+ * response back. Completed keys are also kept in a local cache, and concurrent duplicates on the same node wait
+ * for the first request instead of polling MongoDB.
+ * <p>
+ * While the action runs its claim is refreshed every third of {@code orders.idempotency.in-progress-timeout}, so
+ * only a claim whose owner died goes stale and is taken over; if that owner did insert the order, it is created
+ * twice. A claim is released only when the request is rejected as invalid. Any other failure may come after the
+ * order was stored, so the claim is kept and a retry waits for it to go stale.
+ * <p>
+ * Each MongoDB call takes its own bulkhead permit, so a duplicate waiting for the first request holds none.
+ */
+@Slf4j
+@Component
+public class OrderIdempotency {
+
+    private static final long POLL_INTERVAL_MILLIS = 50;
+
+    private final MongoTemplate mongoTemplate;
+    private final MongoBulkhead bulkhead;
+    private final ObjectMapper objectMapper;
+    private final OrderIdempotencyProperties properties;
+    private final Cache<String, IdempotencyRecord> completed;
+    private final Map<String, CompletableFuture<Void>> inFlight = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService heartbeats = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("orders-idempotency-heartbeat").daemon(true).factory());
+    private final Counter executed;
+    private final Counter replayed;
+
+    public OrderIdempotency(MongoTemplate mongoTemplate, MongoBulkhead bulkhead, ObjectMapper objectMapper,
+                            OrderIdempotencyProperties properties, MeterRegistry meterRegistry) {
+        this.mongoTemplate = mongoTemplate;
+        this.bulkhead = bulkhead;
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+        this.completed = Caffeine.newBuilder()
+                .maximumSize(properties.cacheSize())
+                .expireAfterWrite(properties.ttl())
+                .build();
+        this.executed = Counter.builder("orders.idempotency.requests")
+                .tag("result", "executed")
+                .register(meterRegistry);
+        this.replayed = Counter.builder("orders.idempotency.requests")
+                .tag("result", "replayed")
+                .register(meterRegistry);
+    }
+
+    public IdempotentResponse execute(String key, OrderCreateRequest request, Supplier<OrderResponse> action) {
+        String fingerprint = fingerprint(request);
+        long deadline = System.nanoTime() + properties.inProgressTimeout().toNanos();
+
+        while (true) {
+            IdempotencyRecord done = completed.getIfPresent(key);
+            if (done != null) {
+                return replay(done, fingerprint);
+            }
+
+            CompletableFuture<Void> mine = new CompletableFuture<>();
+            CompletableFuture<Void> running = inFlight.putIfAbsent(key, mine);
+            if (running != null) {
+                await(running, deadline);
+                continue;
+            }
+
+            try {
+                IdempotentResponse response = claimAndRun(key, fingerprint, action, deadline);
+                if (response != null) {
+                    return response;
+                }
+            } finally {
+                inFlight.remove(key, mine);
+                mine.complete(null);
+            }
+        }
+    }
+
+    private IdempotentResponse claimAndRun(String key, String fingerprint, Supplier<OrderResponse> action, long deadline) {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        IdempotencyRecord claim = new IdempotencyRecord(key, fingerprint, null, now, now.plus(properties.ttl()));
+
+        try {
+            bulkhead.supply(() -> mongoTemplate.insert(claim));
+        } catch (DuplicateKeyException e) {
+            IdempotencyRecord existing = bulkhead.supply(() -> mongoTemplate.findById(key, IdempotencyRecord.class));
+            if (existing == null) {
+                return null;
+            }
+            if (existing.getResponse() != null) {
+                completed.put(key, existing);
+                return replay(existing, fingerprint);
+            }
+            checkFingerprint(existing, fingerprint);
+            if (!existing.getClaimedAt().isBefore(now.minus(properties.inProgressTimeout())) || !takeOver(existing, claim)) {
+                if (System.nanoTime() - deadline >= 0) {
+                    throw stillInProgress();
+                }
+                sleep(POLL_INTERVAL_MILLIS);
+                return null;
+            }
+        }
+
+        long heartbeatMillis = Math.max(1, properties.inProgressTimeout().toMillis() / 3);
+        ScheduledFuture<?> heartbeat = heartbeats.scheduleAtFixedRate(() -> refresh(claim),
+                heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+        OrderResponse response;
+        try {
+            response = action.get();
+        } catch (BadRequestException | ConstraintViolationException e) {
+            heartbeat.cancel(false);
+            synchronized (claim) {
+                bulkhead.supply(() -> mongoTemplate.remove(claimed(claim), IdempotencyRecord.class));
+            }
+            throw e;
+        } finally {
+            heartbeat.cancel(false);
+        }
+
+        executed.increment();
+        synchronized (claim) {
+            claim.setResponse(response);
+            if (bulkhead.supply(() -> mongoTemplate.updateFirst(claimed(claim), Update.update("response", response),
+                    IdempotencyRecord.class)).getModifiedCount() == 0) {
+                log.warn("Idempotency-Key {} was taken over while its request ran; order {} may have been created twice",
+                        key, response.id());
+                return new IdempotentResponse(response, false);
+            }
+        }
+        completed.put(key, claim);
+        return new IdempotentResponse(response, false);
+    }
+
+    /** A beat the bulkhead turns away is skipped rather than thrown, which would cancel the remaining ones. */
+    private void refresh(IdempotencyRecord claim) {
+        synchronized (claim) {
+            Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+            try {
+                if (bulkhead.supply(() -> mongoTemplate.updateFirst(claimed(claim), Update.update("claimedAt", now),
+                        IdempotencyRecord.class)).getModifiedCount() == 1) {
+                    claim.setClaimedAt(now);
+                }
+            } catch (ServiceUnavailableException e) {
+                log.warn("Could not refresh Idempotency-Key {}: {}", claim.getKey(), e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        heartbeats.shutdownNow();
+    }
+
+    private boolean takeOver(IdempotencyRecord abandoned, IdempotencyRecord claim) {
+        Update update = new Update()
+                .set("fingerprint", claim.getFingerprint())
+                .set("claimedAt", claim.getClaimedAt())
+                .set("expiresAt", claim.getExpiresAt());
+        return bulkhead.supply(() -> mongoTemplate.updateFirst(claimed(abandoned).addCriteria(Criteria.where("response").is(null)),
+                update, IdempotencyRecord.class)).getModifiedCount() == 1;
+    }
+
+    private Query claimed(IdempotencyRecord claim) {
+        return Query.query(Criteria.where("key").is(claim.getKey()).and("claimedAt").is(claim.getClaimedAt()));
+    }
+
+    private IdempotentResponse replay(IdempotencyRecord record, String fingerprint) {
+        checkFingerprint(record, fingerprint);
+        replayed.increment();
+        return new IdempotentResponse(record.getResponse(), true);
+    }
+
+    private void checkFingerprint(IdempotencyRecord record, String fingerprint) {
+        if (!record.getFingerprint().equals(fingerprint)) {
+            throw new UnprocessableEntityException("Idempotency-Key was already used for a different request");
+        }
+    }
+
+    private void await(CompletableFuture<Void> running, long deadline) {
+        try {
+            running.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw stillInProgress();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw stillInProgress();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private ConflictException stillInProgress() {
+        return new ConflictException("A request with this Idempotency-Key is still being processed");
+    }
+
+    private String fingerprint(OrderCreateRequest request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(objectMapper.writeValueAsBytes(request)));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Could not fingerprint the order request", e);
+        }
+    }
+
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw stillInProgress();
+        }
+    }
+}
@@ -1,27 +1,58 @@
 package cat.itacademy.s04.t02.n03.fruit.service.mapper;
 
 import cat.itacademy.s04.t02.n03.fruit.dto.OrderCreateRequest;
+import cat.itacademy.s04.t02.n03.fruit.dto.OrderItemRequest;
 import cat.itacademy.s04.t02.n03.fruit.dto.OrderItemResponse;
+import cat.itacademy.s04.t02.n03.fruit.dto.OrderPatchRequest;
 import cat.itacademy.s04.t02.n03.fruit.dto.OrderResponse;
+import cat.itacademy.s04.t02.n03.fruit.exception.BadRequestException;
 import cat.itacademy.s04.t02.n03.fruit.model.Order;
 import cat.itacademy.s04.t02.n03.fruit.model.OrderItem;
+import cat.itacademy.s04.t02.n03.fruit.service.BusinessClock;
 import cat.itacademy.s04.t02.n03.fruit.valueobject.ClientName;
 import cat.itacademy.s04.t02.n03.fruit.valueobject.DeliveryDate;
 import cat.itacademy.s04.t02.n03.fruit.valueobject.OrderItemVO;
+import io.micrometer.observation.annotation.Observed;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Component
+@Observed(name = "orders.mapper")
 public class OrderMapper {
 
+    private static final BadRequestException NO_ITEMS = BadRequestException.stackless("At least one item is required");
+    private static final BadRequestException NULL_ITEM = BadRequestException.stackless("Items cannot be null");
+
+    private final BusinessClock clock;
+
+    public OrderMapper() {
+        this(BusinessClock.system(ZoneId.systemDefault()));
+    }
+
+    @Autowired
+    public OrderMapper(BusinessClock clock) {
+        this.clock = clock;
+    }
+
     public Order toEntity(OrderCreateRequest request) {
 
         ClientName clientName = new ClientName(request.clientName());
-        DeliveryDate deliveryDate = new DeliveryDate(request.deliveryDate());
+        DeliveryDate deliveryDate = new DeliveryDate(request.deliveryDate(), clock.earliestDeliveryDate());
+
+        if (request.items() == null || request.items().isEmpty()) {
+            throw NO_ITEMS;
+        }
 
         List<OrderItem> items = request.items().stream()
-                .map(item -> new OrderItemVO(item.fruitName(), item.quantityInKilos()).toEntity())
+                .map(this::toItem)
                 .toList();
 
         return Order.builder()
@@ -31,10 +62,29 @@ public class OrderMapper {
                 .build();
     }
 
+    public Order applyPatch(Order current, OrderPatchRequest patch) {
+        String clientName = patch.clientName() == null
+                ? current.getClientName()
+                : new ClientName(patch.clientName()).value();
+        LocalDate deliveryDate = patch.deliveryDate() == null
+                ? current.getDeliveryDate()
+                : new DeliveryDate(patch.deliveryDate(), clock.earliestDeliveryDate()).value();
+        List<OrderItem> items = patch.items() == null
+                ? current.getItems()
+                : patchItems(current.getItems(), patch.items());
+
+        if (items.isEmpty()) {
+            throw NO_ITEMS;
+        }
+
+        Order patched = new Order(current.getId(), clientName, deliveryDate, items);
+        patched.setVersion(current.getVersion());
+        return patched;
+    }
 
     public OrderResponse toResponse(Order order) {
 
-        List<OrderItemResponse> items = order.getItems().stream()
+        List<OrderItemResponse> items = order.getItems() == null ? null : order.getItems().stream()
                 .map(i -> new OrderItemResponse(i.getFruitName(), i.getQuantityInKilos()))
                 .toList();
 
@@ -42,8 +92,36 @@ public class OrderMapper {
                 order.getId(),
                 order.getClientName(),
                 order.getDeliveryDate(),
-                items
+                items,
+                order.getVersion()
         );
     }
-}
 
+    private List<OrderItem> patchItems(List<OrderItem> current, Map<String, Integer> changes) {
+        List<OrderItem> items = new ArrayList<>(current.size() + changes.size());
+        Set<String> patched = new HashSet<>();
+
+        for (OrderItem item : current) {
+            String fruitName = item.getFruitName();
+            if (!changes.containsKey(fruitName)) {
+                items.add(item);
+            } else if (patched.add(fruitName) && changes.get(fruitName) != null) {
+                items.add(new OrderItemVO(fruitName, changes.get(fruitName)).toEntity());
+            }
+        }
+        changes.forEach((fruitName, quantity) -> {
+            if (quantity != null && !patched.contains(fruitName)) {
+                items.add(new OrderItemVO(fruitName, quantity).toEntity());
+            }
+        });
+        return items;
+    }
+
+    private OrderItem toItem(OrderItemRequest item) {
+        if (item == null) {
+            throw NULL_ITEM;
+        }
+        int quantity = item.quantityInKilos() == null ? 0 : item.quantityInKilos();
+        return new OrderItemVO(item.fruitName(), quantity).toEntity();
+    }
+}
@@ -0,0 +1,278 @@
+package cat.itacademy.s04.t02.n03.fruit.service.writebehind;
+
+import cat.itacademy.s04.t02.n03.fruit.config.OrderWriteBehindProperties;
+import cat.itacademy.s04.t02.n03.fruit.dto.OrderResponse;
+import cat.itacademy.s04.t02.n03.fruit.exception.ServiceUnavailableException;
+import cat.itacademy.s04.t02.n03.fruit.model.Order;
+import cat.itacademy.s04.t02.n03.fruit.repository.DailyFruitDemandRepository;
+import cat.itacademy.s04.t02.n03.fruit.repository.OrderRepository;
+import cat.itacademy.s04.t02.n03.fruit.service.FruitDemandDeltas;
+import cat.itacademy.s04.t02.n03.fruit.service.cache.OrderCache;
+import cat.itacademy.s04.t02.n03.fruit.service.mapper.OrderMapper;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.context.WebServerGracefulShutdownLifecycle;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Write-behind backed by {@link OrderWriteBehindLog}. {@link #append} makes the order durable in the local log and
+ * returns; a single flusher thread bulk-inserts queued orders in log order, applies their rollup deltas, caches
+ * them and advances the checkpoint. Orders found after the checkpoint at start-up are queued again; the ones
+ * MongoDB already holds are not inserted twice but their rollup deltas are applied, since a crash before the
+ * checkpoint may have come before the rollup too. A crash between the rollup and the checkpoint counts that batch
+ * twice until the rollup job's next rebuild. The log is opened on construction and the flusher runs in {@link #PHASE},
+ * before the web server starts taking requests and until after it has drained them on shutdown.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "orders.write-behind.enabled", havingValue = "true")
+public class LogOrderWriteBehind implements OrderWriteBehind, SmartLifecycle {
+
+    static final int PHASE = WebServerGracefulShutdownLifecycle.SMART_LIFECYCLE_PHASE - 1024;
+
+    private final OrderRepository orderRepository;
+    private final DailyFruitDemandRepository demandRepository;
+    private final OrderMapper mapper;
+    private final OrderCache orderCache;
+    private final OrderWriteBehindProperties properties;
+    private final ObjectWriter orderWriter;
+    private final ObjectReader orderReader;
+
+    private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+
+    private final OrderWriteBehindLog journal;
+    private volatile boolean running;
+    private Thread flusher;
+
+    public LogOrderWriteBehind(OrderRepository orderRepository, DailyFruitDemandRepository demandRepository,
+                               OrderMapper mapper, OrderCache orderCache, ObjectMapper objectMapper,
+                               OrderWriteBehindProperties properties, MeterRegistry meterRegistry) {
+        this.orderRepository = orderRepository;
+        this.demandRepository = demandRepository;
+        this.mapper = mapper;
+        this.orderCache = orderCache;
+        this.properties = properties;
+        this.orderWriter = objectMapper.writerFor(Order.class);
+        this.orderReader = objectMapper.readerFor(Order.class);
+        try {
+            this.journal = OrderWriteBehindLog.open(properties.directory(), (int) properties.segmentSize().toBytes(),
+                    properties.fsync());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open the write-behind log in " + properties.directory(), e);
+        }
+
+        Gauge.builder("orders.write_behind.pending", pending, Map::size)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public OrderResponse append(Order order) {
+        OrderResponse response = mapper.toResponse(order);
+        byte[] payload = serialize(order);
+
+        synchronized (this) {
+            Pending entry = new Pending(order, response, journal.append(payload), new CompletableFuture<>());
+            pending.put(order.getId(), entry);
+            queue.add(entry);
+        }
+        return response;
+    }
+
+    @Override
+    public Optional<OrderResponse> pending(String id) {
+        Pending entry = pending.get(id);
+        return entry == null ? Optional.empty() : Optional.of(entry.response());
+    }
+
+    @Override
+    public void awaitFlushed(String id) {
+        Pending entry = pending.get(id);
+        if (entry == null) {
+            return;
+        }
+        try {
+            entry.flushed().get(properties.awaitTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            throw new ServiceUnavailableException("Order is still being stored, try again later");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("Order is still being stored, try again later");
+        }
+    }
+
+    @Override
+    public void start() {
+        List<OrderWriteBehindLog.Entry> recovered = journal.takeRecovered();
+        for (OrderWriteBehindLog.Entry entry : recovered) {
+            Order order = deserialize(entry.payload());
+            Pending replayed = new Pending(order, mapper.toResponse(order), entry.end(), new CompletableFuture<>());
+            pending.put(order.getId(), replayed);
+            queue.add(replayed);
+        }
+        if (!recovered.isEmpty()) {
+            log.info("Replaying {} write-behind orders from {}", recovered.size(), properties.directory());
+        }
+
+        running = true;
+        flusher = Thread.ofPlatform()
+                .name("orders-write-behind")
+                .daemon(true)
+                .start(this::run);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        try {
+            flusher.join(properties.retryDelay().plusSeconds(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        journal.close();
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void run() {
+        Flush flush = null;
+        while (running || !queue.isEmpty()) {
+            try {
+                if (flush == null) {
+                    Pending first = queue.poll(properties.flushInterval().toMillis(), TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    List<Pending> batch = new ArrayList<>(properties.batchSize());
+                    batch.add(first);
+                    queue.drainTo(batch, properties.batchSize() - 1);
+                    flush = new Flush(batch);
+                }
+                flush.run();
+                flush = null;
+            } catch (RuntimeException e) {
+                if (!running) {
+                    log.warn("Stopping with {} write-behind orders left in the log for the next start", pending.size());
+                    return;
+                }
+                log.warn("Write-behind flush of {} orders failed, retrying in {}", flush.batch.size(), properties.retryDelay(), e);
+                sleep(properties.retryDelay().toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private byte[] serialize(Order order) {
+        try {
+            return orderWriter.writeValueAsBytes(order);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Order deserialize(byte[] payload) {
+        try {
+            return orderReader.readValue(payload);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void sleep(long millis) {
+        long deadline = System.currentTimeMillis() + millis;
+        try {
+            while (running && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * One batch on its way to MongoDB. A retry repeats only the steps that have not succeeded yet, so the rollup
+     * deltas worked out by the insert are applied once. An order MongoDB already holds was inserted by an earlier
+     * attempt, before a failure or a crash, and its deltas count as well.
+     */
+    private final class Flush {
+
+        private final List<Pending> batch;
+        private FruitDemandDeltas deltas;
+        private List<OrderResponse> inserted;
+        private boolean rolledUp;
+
+        private Flush(List<Pending> batch) {
+            this.batch = batch;
+        }
+
+        private void run() {
+            if (deltas == null) {
+                insert();
+            }
+            if (!rolledUp) {
+                demandRepository.increment(deltas.toList());
+                rolledUp = true;
+            }
+            journal.checkpoint(batch.getLast().end());
+
+            inserted.forEach(orderCache::put);
+            for (Pending entry : batch) {
+                pending.remove(entry.order().getId());
+                entry.flushed().complete(null);
+            }
+        }
+
+        private void insert() {
+            List<Order> orders = batch.stream().map(Pending::order).toList();
+            Map<Integer, String> errors = orderRepository.insertUnordered(orders);
+
+            FruitDemandDeltas batchDeltas = new FruitDemandDeltas();
+            List<OrderResponse> batchInserted = new ArrayList<>(orders.size());
+            for (int i = 0; i < orders.size(); i++) {
+                Order order = orders.get(i);
+                String error = errors.get(i);
+                if (error == null || orderRepository.existsById(order.getId())) {
+                    batchDeltas.add(order);
+                    batchInserted.add(mapper.toResponse(order));
+                } else {
+                    log.error("Dropping write-behind order {} that MongoDB rejected: {}", order.getId(), error);
+                }
+            }
+            inserted = batchInserted;
+            deltas = batchDeltas;
+        }
+    }
+
+    private record Pending(Order order, OrderResponse response, OrderWriteBehindLog.Position end,
+                           CompletableFuture<Void> flushed) {}
+}
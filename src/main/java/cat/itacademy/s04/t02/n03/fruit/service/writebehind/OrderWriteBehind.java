@@ -0,0 +1,35 @@
+package cat.itacademy.s04.t02.n03.fruit.service.writebehind;
+
+import cat.itacademy.s04.t02.n03.fruit.dto.OrderResponse;
+import cat.itacademy.s04.t02.n03.fruit.model.Order;
+
+import java.util.Optional;
+
+/**
+ * Accepts new orders into a durable local log and stores them in MongoDB in the background.
+ * Enabled with {@code orders.write-behind.enabled=true}.
+ */
+public interface OrderWriteBehind {
+
+    OrderWriteBehind NONE = new OrderWriteBehind() {
+        @Override
+        public OrderResponse append(Order order) {
+            throw new IllegalStateException("Write-behind mode is not enabled");
+        }
+
+        @Override
+        public Optional<OrderResponse> pending(String id) {
+            return Optional.empty();
+        }
+
+        @Override
+        public void awaitFlushed(String id) {
+        }
+    };
+
+    OrderResponse append(Order order);
+
+    Optional<OrderResponse> pending(String id);
+
+    void awaitFlushed(String id);
+}
@@ -0,0 +1,197 @@
+package cat.itacademy.s04.t02.n03.fruit.service.writebehind;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only journal of orders accepted in write-behind mode, kept in fixed-size memory-mapped segment files.
+ * Each record is {@code [length][crc32c][payload]}, and a zero length or a checksum mismatch marks the end of the
+ * written part of a segment. The {@code checkpoint} file holds the position up to which every record is stored in
+ * MongoDB; segments wholly before it are deleted, and {@link #takeRecovered()} returns the records after it.
+ */
+final class OrderWriteBehindLog {
+
+    record Position(long segment, int offset) {}
+
+    record Entry(byte[] payload, Position end) {}
+
+    private static final int HEADER_BYTES = 8;
+    private static final String CHECKPOINT = "checkpoint";
+    private static final Pattern SEGMENT_NAME = Pattern.compile("(\\d{20})\\.log");
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final boolean fsync;
+    private List<Entry> recovered;
+
+    private long segment;
+    private MappedByteBuffer buffer;
+    private long checkpointedSegment;
+
+    private OrderWriteBehindLog(Path directory, int segmentBytes, boolean fsync) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.fsync = fsync;
+        this.recovered = new ArrayList<>();
+        recover();
+    }
+
+    static OrderWriteBehindLog open(Path directory, int segmentBytes, boolean fsync) throws IOException {
+        Files.createDirectories(directory);
+        return new OrderWriteBehindLog(directory, segmentBytes, fsync);
+    }
+
+    List<Entry> takeRecovered() {
+        List<Entry> entries = recovered;
+        recovered = List.of();
+        return entries;
+    }
+
+    synchronized Position append(byte[] payload) {
+        int size = HEADER_BYTES + payload.length;
+        if (size > segmentBytes) {
+            throw new IllegalArgumentException("Record of " + payload.length + " bytes does not fit in a write-behind segment");
+        }
+        if (buffer.remaining() < size) {
+            roll();
+        }
+
+        int start = buffer.position();
+        buffer.putInt(start + 4, checksum(payload));
+        buffer.put(start + HEADER_BYTES, payload);
+        buffer.putInt(start, payload.length);
+        buffer.position(start + size);
+        if (fsync) {
+            buffer.force(start, size);
+        }
+        return new Position(segment, start + size);
+    }
+
+    void checkpoint(Position position) {
+        try {
+            Path temporary = directory.resolve(CHECKPOINT + ".tmp");
+            Files.writeString(temporary, position.segment() + " " + position.offset());
+            Files.move(temporary, directory.resolve(CHECKPOINT), StandardCopyOption.ATOMIC_MOVE);
+
+            if (position.segment() != checkpointedSegment) {
+                for (long old : segments()) {
+                    if (old < position.segment()) {
+                        Files.deleteIfExists(segmentPath(old));
+                    }
+                }
+                checkpointedSegment = position.segment();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not checkpoint the write-behind log", e);
+        }
+    }
+
+    synchronized void close() {
+        buffer.force();
+    }
+
+    private void recover() throws IOException {
+        List<Long> segments = segments();
+        Position checkpoint = readCheckpoint(segments);
+        checkpointedSegment = checkpoint.segment();
+
+        for (long old : segments) {
+            if (old < checkpoint.segment()) {
+                Files.deleteIfExists(segmentPath(old));
+            }
+        }
+
+        segment = checkpoint.segment();
+        buffer = map(segment);
+        int end = read(buffer, segment, checkpoint.offset());
+        for (long next : segments) {
+            if (next > checkpoint.segment()) {
+                segment = next;
+                buffer = map(segment);
+                end = read(buffer, segment, 0);
+            }
+        }
+
+        if (end + HEADER_BYTES <= buffer.limit() && buffer.getInt(end) != 0) {
+            buffer.put(end, new byte[buffer.limit() - end]);
+        }
+        buffer.position(end);
+    }
+
+    private int read(MappedByteBuffer segmentBuffer, long segmentNumber, int offset) {
+        while (offset + HEADER_BYTES <= segmentBuffer.limit()) {
+            int length = segmentBuffer.getInt(offset);
+            if (length <= 0 || offset + HEADER_BYTES + length > segmentBuffer.limit()) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            segmentBuffer.get(offset + HEADER_BYTES, payload);
+            if (checksum(payload) != segmentBuffer.getInt(offset + 4)) {
+                break;
+            }
+            offset += HEADER_BYTES + length;
+            recovered.add(new Entry(payload, new Position(segmentNumber, offset)));
+        }
+        return offset;
+    }
+
+    private void roll() {
+        buffer.force();
+        try {
+            segment++;
+            buffer = map(segment);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create write-behind segment " + segment, e);
+        }
+    }
+
+    private MappedByteBuffer map(long segmentNumber) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentPath(segmentNumber),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = Math.max(channel.size(), segmentBytes);
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    private Position readCheckpoint(List<Long> segments) throws IOException {
+        Path checkpoint = directory.resolve(CHECKPOINT);
+        if (Files.exists(checkpoint)) {
+            String[] parts = Files.readString(checkpoint, StandardCharsets.UTF_8).trim().split(" ");
+            return new Position(Long.parseLong(parts[0]), Integer.parseInt(parts[1]));
+        }
+        return new Position(segments.isEmpty() ? 1 : segments.getFirst(), 0);
+    }
+
+    private List<Long> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> SEGMENT_NAME.matcher(file.getFileName().toString()))
+                    .filter(Matcher::matches)
+                    .map(matcher -> Long.parseLong(matcher.group(1)))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private Path segmentPath(long segmentNumber) {
+        return directory.resolve("%020d.log".formatted(segmentNumber));
+    }
+
+    private static int checksum(byte[] payload) {
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+}
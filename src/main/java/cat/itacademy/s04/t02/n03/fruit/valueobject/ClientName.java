@@ -4,9 +4,11 @@ import cat.itacademy.s04.t02.n03.fruit.exception.BadRequestException;
 
 public record ClientName(String value) {
 
+    private static final BadRequestException EMPTY = BadRequestException.stackless("Client name cannot be empty");
+
     public ClientName {
         if (value == null || value.isBlank()) {
-            throw new BadRequestException("Client name cannot be empty");
+            throw EMPTY;
         }
     }
 }
@@ -4,12 +4,14 @@ import cat.itacademy.s04.t02.n03.fruit.exception.BadRequestException;
 
 import java.time.LocalDate;
 
-public record DeliveryDate(LocalDate value) {
+/** A delivery date no earlier than {@code earliest}, the business clock's earliest delivery date when it was made. */
+public record DeliveryDate(LocalDate value, LocalDate earliest) {
+
+    private static final BadRequestException TOO_EARLY = BadRequestException.stackless("Delivery date must be at least tomorrow");
 
     public DeliveryDate {
-        if (value == null || value.isBefore(LocalDate.now().plusDays(1))) {
-            throw new BadRequestException("Delivery date must be at least tomorrow");
+        if (value == null || value.isBefore(earliest)) {
+            throw TOO_EARLY;
         }
     }
 }
-
@@ -5,12 +5,15 @@ import cat.itacademy.s04.t02.n03.fruit.model.OrderItem;
 
 public record OrderItemVO(String fruitName, int quantityInKilos) {
 
+    private static final BadRequestException MISSING_FRUIT = BadRequestException.stackless("Fruit name is required");
+    private static final BadRequestException NON_POSITIVE_QUANTITY = BadRequestException.stackless("Quantity must be > 0");
+
     public OrderItemVO {
         if (fruitName == null || fruitName.isBlank()) {
-            throw new BadRequestException("Fruit name is required");
+            throw MISSING_FRUIT;
         }
         if (quantityInKilos <= 0) {
-            throw new BadRequestException("Quantity must be > 0");
+            throw NON_POSITIVE_QUANTITY;
         }
     }
 
@@ -0,0 +1,73 @@
+package cat.itacademy.s04.t02.n03.fruit.benchmark;
+
+import cat.itacademy.s04.t02.n03.fruit.dto.OrderCreateRequest;
+import cat.itacademy.s04.t02.n03.fruit.dto.OrderItemRequest;
+import cat.itacademy.s04.t02.n03.fruit.repository.OrderRepository;
+import cat.itacademy.s04.t02.n03.fruit.service.OrderService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares single inserts with the batch endpoint's bulk path.
+ * Run with {@code mvn test -Dtest=OrderIngestionBenchmarkTest -Dbenchmark=true}.
+ */
+@SpringBootTest
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class OrderIngestionBenchmarkTest {
+
+    private static final int ORDERS = Integer.getInteger("benchmark.orders", 10_000);
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    private List<OrderCreateRequest> requests;
+
+    @BeforeEach
+    void setUp() {
+        orderRepository.deleteAll();
+
+        LocalDate deliveryDate = LocalDate.now().plusDays(1);
+        requests = IntStream.range(0, ORDERS)
+                .mapToObj(i -> new OrderCreateRequest("Client " + i, deliveryDate,
+                        List.of(new OrderItemRequest("Apple", 1 + i % 10), new OrderItemRequest("Pear", 2))))
+                .toList();
+    }
+
+    @Test
+    void singleInsertsVersusBulkInsert() {
+        long singleNanos = time(() -> requests.forEach(orderService::createOrder));
+        assertEquals(ORDERS, orderRepository.count());
+
+        orderRepository.deleteAll();
+
+        long bulkNanos = time(() -> orderService.createOrders(requests));
+        assertEquals(ORDERS, orderRepository.count());
+
+        report("single insert", singleNanos);
+        report("bulk insert", bulkNanos);
+        System.out.printf("bulk speed-up: %.1fx%n", (double) singleNanos / bulkNanos);
+    }
+
+    private long time(Runnable run) {
+        long start = System.nanoTime();
+        run.run();
+        return System.nanoTime() - start;
+    }
+
+    private void report(String label, long nanos) {
+        System.out.printf("%-14s %,d orders in %,d ms (%,.0f orders/s)%n",
+                label, ORDERS, nanos / 1_000_000, ORDERS / (nanos / 1e9));
+    }
+}
@@ -0,0 +1,107 @@
+package cat.itacademy.s04.t02.n03.fruit.benchmark;
+
+import cat.itacademy.s04.t02.n03.fruit.model.Order;
+import cat.itacademy.s04.t02.n03.fruit.model.OrderFields;
+import cat.itacademy.s04.t02.n03.fruit.model.OrderItem;
+import com.mongodb.MongoCommandException;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.DocumentCodec;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares the BSON size of orders in the original long-named layout with the compact one, and the storage
+ * and index size of both collections where the server reports {@code collStats}.
+ * Run with {@code mvn test -Dtest=OrderStorageBenchmarkTest -Dbenchmark=true}.
+ */
+@SpringBootTest
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class OrderStorageBenchmarkTest {
+
+    private static final int ORDERS = Integer.getInteger("benchmark.orders", 10_000);
+    private static final List<String> FRUITS = List.of("Apple", "Banana", "Pear", "Orange", "Watermelon", "Pineapple");
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @AfterEach
+    void dropCollections() {
+        mongoTemplate.dropCollection("orders_storage_legacy");
+        mongoTemplate.dropCollection("orders_storage_compact");
+    }
+
+    @Test
+    void compactSchemaVersusLegacySchema() {
+        List<Order> orders = IntStream.range(0, ORDERS)
+                .mapToObj(i -> new Order("Client " + i, LocalDate.now().plusDays(1 + i % 30),
+                        IntStream.range(0, 1 + i % 5)
+                                .mapToObj(j -> new OrderItem(FRUITS.get((i + j) % FRUITS.size()), 1 + j))
+                                .toList()))
+                .toList();
+
+        List<Document> legacy = orders.stream().map(this::legacy).toList();
+        List<Document> compact = orders.stream().map(this::compact).toList();
+
+        long legacyBytes = legacy.stream().mapToLong(this::bsonSize).sum();
+        long compactBytes = compact.stream().mapToLong(this::bsonSize).sum();
+        System.out.printf("legacy  %,d orders, %,d BSON bytes (%,d per order)%n", ORDERS, legacyBytes, legacyBytes / ORDERS);
+        System.out.printf("compact %,d orders, %,d BSON bytes (%,d per order)%n", ORDERS, compactBytes, compactBytes / ORDERS);
+        System.out.printf("compact is %.0f%% of legacy%n", 100.0 * compactBytes / legacyBytes);
+        assertTrue(compactBytes < legacyBytes);
+
+        mongoTemplate.getCollection("orders_storage_legacy").insertMany(legacy);
+        mongoTemplate.getCollection("orders_storage_compact").insertMany(compact);
+        reportCollStats("orders_storage_legacy");
+        reportCollStats("orders_storage_compact");
+    }
+
+    private Document legacy(Order order) {
+        return new Document(OrderFields.LEGACY_CLIENT_NAME, order.getClientName())
+                .append(OrderFields.LEGACY_DELIVERY_DATE, Date.from(order.getDeliveryDate().atStartOfDay(ZoneId.systemDefault()).toInstant()))
+                .append(OrderFields.LEGACY_ITEMS, order.getItems().stream()
+                        .map(item -> new Document(OrderFields.LEGACY_FRUIT_NAME, item.getFruitName())
+                                .append(OrderFields.LEGACY_QUANTITY, item.getQuantityInKilos()))
+                        .toList())
+                .append(OrderFields.VERSION, 0L)
+                .append("_class", Order.class.getName());
+    }
+
+    private Document compact(Order order) {
+        Document document = new Document();
+        mongoTemplate.getConverter().write(order, document);
+        document.put(OrderFields.VERSION, 0L);
+        return document;
+    }
+
+    private long bsonSize(Document document) {
+        return new RawBsonDocument(document, new DocumentCodec()).getByteBuffer().remaining();
+    }
+
+    private long stat(Document stats, String key) {
+        Number value = stats.get(key, Number.class);
+        return value == null ? -1 : value.longValue();
+    }
+
+    private void reportCollStats(String collection) {
+        try {
+            Document stats = mongoTemplate.getDb().runCommand(new Document("collStats", collection));
+            System.out.printf("%-24s size %,d, storageSize %,d, totalIndexSize %,d%n", collection,
+                    stat(stats, "size"), stat(stats, "storageSize"), stat(stats, "totalIndexSize"));
+        } catch (MongoCommandException e) {
+            System.out.printf("%-24s collStats not available on this server%n", collection);
+        }
+    }
+}
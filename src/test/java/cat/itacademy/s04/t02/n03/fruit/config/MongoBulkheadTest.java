@@ -0,0 +1,105 @@
+package cat.itacademy.s04.t02.n03.fruit.config;
+
+import cat.itacademy.s04.t02.n03.fruit.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MongoBulkheadTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private MongoBulkhead bulkhead;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        MongoLoadShedder loadShedder = new MongoLoadShedder(
+                new OrderLoadSheddingProperties(false, Duration.ofMillis(100), 0.5, Duration.ofSeconds(1)), meterRegistry);
+        bulkhead = new MongoBulkhead(new MongoBulkheadProperties(1, Duration.ofMillis(50)), loadShedder, meterRegistry);
+    }
+
+    @Test
+    void execute_shouldReturnResultAndReleasePermit() throws Throwable {
+        assertEquals("ok", bulkhead.execute(() -> "ok"));
+
+        assertEquals(0, bulkhead.inUse());
+        assertEquals(1, meterRegistry.get("orders.mongo.bulkhead.wait").timer().count());
+    }
+
+    @Test
+    void execute_shouldReleasePermit_whenCallFails() {
+        assertThrows(IllegalStateException.class, () -> bulkhead.execute(() -> {
+            throw new IllegalStateException("boom");
+        }));
+
+        assertEquals(0, bulkhead.inUse());
+    }
+
+    @Test
+    void execute_shouldHoldPermitUntilStreamIsClosed() throws Throwable {
+        Stream<String> stream = bulkhead.execute(() -> Stream.of("a", "b"));
+
+        assertEquals(1, bulkhead.inUse());
+        assertThrows(ServiceUnavailableException.class, () -> bulkhead.execute(() -> "late"));
+
+        stream.close();
+        stream.close();
+        assertEquals(0, bulkhead.inUse());
+    }
+
+    @Test
+    void execute_shouldLetTheThreadConsumingAStreamRunOnItsPermit() throws Throwable {
+        try (Stream<String> stream = bulkhead.execute(() -> Stream.of("a", "b"))) {
+            List<String> nested = stream
+                    .map(value -> bulkhead.supply(() -> value.toUpperCase()))
+                    .toList();
+
+            assertEquals(List.of("A", "B"), nested);
+            assertEquals(1, bulkhead.inUse());
+        }
+        assertEquals(0, bulkhead.inUse());
+    }
+
+    @Test
+    void execute_shouldRunNestedCallsOnTheCallersPermit() throws Throwable {
+        assertEquals("inner", bulkhead.execute(() -> bulkhead.execute(() -> "inner")));
+
+        assertEquals(0, bulkhead.inUse());
+    }
+
+    @Test
+    void execute_shouldRejectAfterMaxWait_whenAllPermitsAreInUse() throws Exception {
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Thread holder = Thread.ofVirtual().start(() -> {
+            try {
+                bulkhead.execute(() -> {
+                    holding.countDown();
+                    return release.await(5, TimeUnit.SECONDS);
+                });
+            } catch (Throwable ignored) {
+                // the holder only keeps the permit busy
+            }
+        });
+
+        assertTrue(holding.await(5, TimeUnit.SECONDS));
+        assertEquals(1.0, meterRegistry.get("orders.mongo.bulkhead.permits.in-use").gauge().value());
+
+        assertThrows(ServiceUnavailableException.class, () -> bulkhead.execute(() -> "late"));
+        assertEquals(1.0, meterRegistry.get("orders.mongo.bulkhead.rejected").counter().count());
+
+        release.countDown();
+        holder.join();
+    }
+}
@@ -0,0 +1,58 @@
+package cat.itacademy.s04.t02.n03.fruit.config;
+
+import cat.itacademy.s04.t02.n03.fruit.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MongoLoadShedderTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private MongoLoadShedder loadShedder;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        loadShedder = new MongoLoadShedder(
+                new OrderLoadSheddingProperties(true, Duration.ofMillis(100), 0.5, Duration.ofSeconds(3)), meterRegistry);
+    }
+
+    @Test
+    void admit_shouldLetEverythingThrough_whileLatencyIsBelowTarget() {
+        loadShedder.record(Duration.ofMillis(40).toNanos());
+        loadShedder.record(Duration.ofMillis(80).toNanos());
+
+        assertEquals(60.0, meterRegistry.get("orders.mongo.latency.average").gauge().value(), 0.001);
+        IntStream.range(0, 1000).forEach(i -> assertDoesNotThrow(() -> loadShedder.admit(20)));
+    }
+
+    @Test
+    void admit_shouldShedMostExpensiveRequests_butNotAll_whenLatencyIsAboveTarget() {
+        loadShedder.record(Duration.ofMillis(110).toNanos());
+
+        long shedCheap = shed(1);
+        long shedExpensive = shed(20);
+
+        assertTrue(shedCheap > 0 && shedCheap < 250, "cheap requests shed: " + shedCheap);
+        assertTrue(shedExpensive > 800 && shedExpensive < 1000, "expensive requests shed: " + shedExpensive);
+    }
+
+    private long shed(int cost) {
+        return IntStream.range(0, 1000).filter(i -> {
+            try {
+                loadShedder.admit(cost);
+                return false;
+            } catch (ServiceUnavailableException e) {
+                assertEquals(Duration.ofSeconds(3), e.getRetryAfter());
+                return true;
+            }
+        }).count();
+    }
+}
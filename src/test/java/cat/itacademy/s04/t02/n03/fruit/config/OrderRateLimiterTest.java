@@ -0,0 +1,60 @@
+package cat.itacademy.s04.t02.n03.fruit.config;
+
+import cat.itacademy.s04.t02.n03.fruit.exception.TooManyRequestsException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OrderRateLimiterTest {
+
+    private final AtomicLong nanos = new AtomicLong(1_000);
+    private OrderRateLimiter rateLimiter;
+
+    @BeforeEach
+    void setUp() {
+        OrderRateLimitProperties properties = new OrderRateLimitProperties(true, 3, 10, 100, Map.of());
+        rateLimiter = new OrderRateLimiter(properties, nanos::get);
+    }
+
+    @Test
+    void acquire_shouldAllowABurstUpToCapacity_thenRejectWithTheTimeUntilATokenIsBack() {
+        for (int i = 0; i < 3; i++) {
+            rateLimiter.acquire("alice", 1);
+        }
+
+        TooManyRequestsException ex = assertThrows(TooManyRequestsException.class, () -> rateLimiter.acquire("alice", 1));
+        assertEquals(Duration.ofMillis(100), ex.getRetryAfter());
+
+        advance(Duration.ofMillis(100));
+        assertDoesNotThrow(() -> rateLimiter.acquire("alice", 1));
+    }
+
+    @Test
+    void acquire_shouldTakeTheCostInTokens_andKeepClientsApart() {
+        rateLimiter.acquire("alice", 2);
+
+        assertThrows(TooManyRequestsException.class, () -> rateLimiter.acquire("alice", 2));
+        assertDoesNotThrow(() -> rateLimiter.acquire("bob", 3));
+    }
+
+    @Test
+    void acquire_shouldNotTakeTokens_whenTheRequestIsRejected() {
+        rateLimiter.acquire("alice", 3);
+        assertThrows(TooManyRequestsException.class, () -> rateLimiter.acquire("alice", 1));
+        assertThrows(TooManyRequestsException.class, () -> rateLimiter.acquire("alice", 1));
+
+        advance(Duration.ofMillis(100));
+        assertDoesNotThrow(() -> rateLimiter.acquire("alice", 1));
+    }
+
+    private void advance(Duration duration) {
+        nanos.addAndGet(duration.toNanos());
+    }
+}
@@ -0,0 +1,76 @@
+package cat.itacademy.s04.t02.n03.fruit.integration;
+
+import cat.itacademy.s04.t02.n03.fruit.repository.OrderRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "orders.rate-limit.enabled=true",
+        "orders.rate-limit.capacity=5",
+        "orders.rate-limit.refill-per-second=1",
+        "orders.rate-limit.costs.getAllOrders=5"
+})
+@AutoConfigureMockMvc
+class OrderAdmissionIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @BeforeEach
+    void cleanDb() {
+        orderRepository.deleteAll();
+    }
+
+    @Test
+    void getAllOrders_isRejectedWith429_onceTheClientHasUsedItsTokens() throws Exception {
+        mockMvc.perform(get("/orders").with(from("10.0.0.1")))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/orders").with(from("10.0.0.1")))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().exists("Retry-After"))
+                .andExpect(jsonPath("$.status").value(429))
+                .andExpect(jsonPath("$.error").value("Too Many Requests"))
+                .andExpect(jsonPath("$.path").value("/orders"));
+    }
+
+    @Test
+    void otherClients_areNotAffected_byAClientOverItsLimit() throws Exception {
+        mockMvc.perform(get("/orders").with(from("10.0.0.2")))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/orders").with(from("10.0.0.2")))
+                .andExpect(status().isTooManyRequests());
+
+        mockMvc.perform(get("/orders/6650f1e2a1b2c3d4e5f60000").with(from("10.0.0.3")))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void aClientOverItsLimit_cannotGetAFreshBucket_byChangingItsApiKey() throws Exception {
+        mockMvc.perform(get("/orders").with(from("10.0.0.4")).header("X-API-Key", "first"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/orders").with(from("10.0.0.4")).header("X-API-Key", "second"))
+                .andExpect(status().isTooManyRequests());
+    }
+
+    private static RequestPostProcessor from(String address) {
+        return request -> {
+            request.setRemoteAddr(address);
+            return request;
+        };
+    }
+}
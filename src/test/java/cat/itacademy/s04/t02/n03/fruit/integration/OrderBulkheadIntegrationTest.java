@@ -0,0 +1,111 @@
+package cat.itacademy.s04.t02.n03.fruit.integration;
+
+import cat.itacademy.s04.t02.n03.fruit.dto.OrderCreateRequest;
+import cat.itacademy.s04.t02.n03.fruit.dto.OrderItemRequest;
+import cat.itacademy.s04.t02.n03.fruit.dto.OrderResponse;
+import cat.itacademy.s04.t02.n03.fruit.model.IdempotencyRecord;
+import cat.itacademy.s04.t02.n03.fruit.model.Order;
+import cat.itacademy.s04.t02.n03.fruit.model.OrderItem;
+import cat.itacademy.s04.t02.n03.fruit.repository.OrderRepository;
+import cat.itacademy.s04.t02.n03.fruit.service.idempotency.OrderIdempotency;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "orders.mongo.bulkhead.max-concurrent-calls=1",
+        "orders.mongo.bulkhead.max-wait=200ms"
+})
+@AutoConfigureMockMvc
+class OrderBulkheadIntegrationTest {
+
+    private static final int UNCACHED_FRUIT_ID = 9001;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private OrderIdempotency idempotency;
+
+    @BeforeEach
+    void cleanDb() {
+        orderRepository.deleteAll();
+        mongoTemplate.remove(new Query(), IdempotencyRecord.class);
+    }
+
+    @AfterEach
+    void removeFruit() {
+        mongoTemplate.getCollection("fruits").deleteOne(new Document("_id", UNCACHED_FRUIT_ID));
+    }
+
+    @Test
+    void streamedOrders_resolveUncachedFruitsOnTheStreamsPermit() throws Exception {
+        Order order = orderRepository.save(new Order("John", LocalDate.now().plusDays(1),
+                List.of(new OrderItem("Apple", 2))));
+        mongoTemplate.getCollection("fruits").insertOne(new Document("_id", UNCACHED_FRUIT_ID).append("name", "Durian"));
+        mongoTemplate.updateFirst(Query.query(where("id").is(order.getId())),
+                Update.update("i.0.f", UNCACHED_FRUIT_ID), Order.class);
+
+        MvcResult ndjson = mockMvc.perform(get("/orders").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(ndjson))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertTrue(body.contains("\"fruitName\":\"Durian\""), body);
+    }
+
+    @Test
+    void idempotentRequests_holdNoPermit_whileTheirActionRuns() throws Exception {
+        OrderCreateRequest request = new OrderCreateRequest("John", LocalDate.now().plusDays(1),
+                List.of(new OrderItemRequest("Apple", 2)));
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+
+        Thread first = Thread.ofVirtual().start(() -> idempotency.execute("slow-key", request, () -> {
+            running.countDown();
+            try {
+                finish.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new OrderResponse("6650f1e2a1b2c3d4e5f60001", "John", request.deliveryDate(), List.of(), 0L);
+        }));
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+
+        mockMvc.perform(get("/orders/6650f1e2a1b2c3d4e5f60000"))
+                .andExpect(status().isNotFound());
+
+        finish.countDown();
+        first.join();
+    }
+}
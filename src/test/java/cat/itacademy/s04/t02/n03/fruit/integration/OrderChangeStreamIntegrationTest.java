@@ -0,0 +1,85 @@
+package cat.itacademy.s04.t02.n03.fruit.integration;
+
+import cat.itacademy.s04.t02.n03.fruit.dto.OrderCreateRequest;
+import cat.itacademy.s04.t02.n03.fruit.dto.OrderItemRequest;
+import cat.itacademy.s04.t02.n03.fruit.dto.OrderProjection;
+import cat.itacademy.s04.t02.n03.fruit.model.Order;
+import cat.itacademy.s04.t02.n03.fruit.service.OrderService;
+import cat.itacademy.s04.t02.n03.fruit.service.cache.OrderChangeStreamListener;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs against a single-node replica set, which change streams require. Skipped when Docker is unavailable.
+ */
+@SpringBootTest(properties = {
+        "orders.cache.change-stream.enabled=true",
+        "orders.cache.change-stream.checkpoint-id=test-node",
+        "orders.cache.change-stream.checkpoint-interval=0s"
+})
+@Testcontainers(disabledWithoutDocker = true)
+class OrderChangeStreamIntegrationTest {
+
+    @Container
+    @ServiceConnection
+    static MongoDBContainer mongo = new MongoDBContainer("mongo:7.0");
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderChangeStreamListener listener;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Test
+    void writeFromAnotherNode_evictsLocallyCachedOrder() {
+        String id = createCachedOrder();
+
+        renameBehindTheCache(id, "Changed elsewhere");
+
+        await().atMost(Duration.ofSeconds(10))
+                .untilAsserted(() -> assertEquals("Changed elsewhere", orderService.getOrderById(id, OrderProjection.ALL).clientName()));
+    }
+
+    @Test
+    void restartedListener_resumesFromCheckpoint() {
+        String id = createCachedOrder();
+
+        listener.stop();
+        renameBehindTheCache(id, "Changed while down");
+        assertEquals("Alice", orderService.getOrderById(id, OrderProjection.ALL).clientName());
+
+        listener.start();
+
+        await().atMost(Duration.ofSeconds(10))
+                .untilAsserted(() -> assertEquals("Changed while down", orderService.getOrderById(id, OrderProjection.ALL).clientName()));
+    }
+
+    private String createCachedOrder() {
+        return orderService.createOrder(new OrderCreateRequest("Alice", LocalDate.now().plusDays(1),
+                List.of(new OrderItemRequest("Apple", 2)))).id();
+    }
+
+    private void renameBehindTheCache(String id, String clientName) {
+        mongoTemplate.updateFirst(Query.query(Criteria.where("id").is(id)),
+                Update.update("clientName", clientName), Order.class);
+    }
+}
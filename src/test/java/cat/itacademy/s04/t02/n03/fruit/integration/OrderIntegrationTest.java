@@ -1,20 +1,66 @@
 package cat.itacademy.s04.t02.n03.fruit.integration;
 
+import cat.itacademy.s04.t02.n03.fruit.dto.FruitDemandRollupReport;
+import cat.itacademy.s04.t02.n03.fruit.dto.OrderArchiveReport;
+import cat.itacademy.s04.t02.n03.fruit.dto.OrderCreateRequest;
+import cat.itacademy.s04.t02.n03.fruit.dto.OrderItemRequest;
+import cat.itacademy.s04.t02.n03.fruit.dto.OrderResponse;
+import cat.itacademy.s04.t02.n03.fruit.dto.OrderSchemaMigrationReport;
+import cat.itacademy.s04.t02.n03.fruit.model.DailyFruitDemand;
+import cat.itacademy.s04.t02.n03.fruit.model.IdempotencyRecord;
 import cat.itacademy.s04.t02.n03.fruit.model.Order;
+import cat.itacademy.s04.t02.n03.fruit.model.OrderFields;
 import cat.itacademy.s04.t02.n03.fruit.model.OrderItem;
+import cat.itacademy.s04.t02.n03.fruit.repository.DailyFruitDemandRepository;
+import cat.itacademy.s04.t02.n03.fruit.repository.FruitCatalog;
+import cat.itacademy.s04.t02.n03.fruit.repository.OrderArchiveCollections;
+import cat.itacademy.s04.t02.n03.fruit.repository.OrderArchivePartitions;
 import cat.itacademy.s04.t02.n03.fruit.repository.OrderRepository;
+import cat.itacademy.s04.t02.n03.fruit.service.FruitDemandRollupJob;
+import cat.itacademy.s04.t02.n03.fruit.service.OrderArchiver;
+import cat.itacademy.s04.t02.n03.fruit.service.OrderSchemaMigration;
+import cat.itacademy.s04.t02.n03.fruit.service.OrderService;
+import cat.itacademy.s04.t02.n03.fruit.service.idempotency.IdempotentResponse;
+import cat.itacademy.s04.t02.n03.fruit.service.idempotency.OrderIdempotency;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.jayway.jsonpath.JsonPath;
+import com.mongodb.MongoCommandException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.bson.Document;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.time.Instant;
 import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.abort;
+import static org.mockito.Mockito.doAnswer;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -29,9 +75,43 @@ class OrderIntegrationTest {
     @Autowired
     private OrderRepository orderRepository;
 
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private DailyFruitDemandRepository demandRepository;
+
+    @Autowired
+    private FruitDemandRollupJob rollupJob;
+
+    @Autowired
+    private FruitCatalog fruitCatalog;
+
+    @Autowired
+    private OrderSchemaMigration schemaMigration;
+
+    @Autowired
+    private OrderArchiver orderArchiver;
+
+    @Autowired
+    private OrderIdempotency orderIdempotency;
+
+    @Autowired
+    private OrderService orderService;
+
+    @MockitoSpyBean
+    private OrderArchivePartitions archivePartitions;
+
     @BeforeEach
     void cleanDb() {
         orderRepository.deleteAll();
+        demandRepository.deleteAll();
+        mongoTemplate.getCollectionNames().stream()
+                .filter(name -> name.startsWith(OrderArchiveCollections.PREFIX))
+                .forEach(mongoTemplate::dropCollection);
     }
 
     @Test
@@ -57,6 +137,29 @@ class OrderIntegrationTest {
                 .andExpect(jsonPath("$.items[0].quantityInKilos").value(5));
     }
 
+    @Test
+    void createAndGetOrder_negotiateCbor() throws Exception {
+        CBORMapper cbor = CBORMapper.builder().findAndAddModules().build();
+        byte[] body = cbor.writeValueAsBytes(new OrderCreateRequest("Alice", LocalDate.now().plusDays(1),
+                List.of(new OrderItemRequest("Apple", 5))));
+
+        MvcResult created = mockMvc.perform(post("/orders")
+                        .contentType(MediaType.APPLICATION_CBOR)
+                        .accept(MediaType.APPLICATION_CBOR)
+                        .content(body))
+                .andExpect(status().isCreated())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn();
+        OrderResponse response = cbor.readValue(created.getResponse().getContentAsByteArray(), OrderResponse.class);
+        assertEquals("Alice", response.clientName());
+        assertEquals(5, response.items().getFirst().quantityInKilos());
+
+        mockMvc.perform(get("/orders/" + response.id()))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.clientName").value("Alice"));
+    }
+
     @Test
     void createOrder_returnsBadRequest_whenClientNameIsBlank() throws Exception {
 
@@ -136,6 +239,173 @@ class OrderIntegrationTest {
                 .andExpect(jsonPath("$.message").value("Quantity must be > 0"));
     }
 
+    @Test
+    void createOrder_withIdempotencyKey_replaysTheFirstResponse() throws Exception {
+        String key = UUID.randomUUID().toString();
+        String body = """
+                { "clientName": "Alice", "deliveryDate": "%s", "items": [ { "fruitName": "Apple", "quantityInKilos": 5 } ] }
+                """.formatted(LocalDate.now().plusDays(1));
+
+        MvcResult first = mockMvc.perform(post("/orders")
+                        .header("Idempotency-Key", key)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isCreated())
+                .andExpect(header().string("Idempotent-Replayed", "false"))
+                .andReturn();
+        String id = JsonPath.read(first.getResponse().getContentAsString(), "$.id");
+
+        mockMvc.perform(post("/orders")
+                        .header("Idempotency-Key", key)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isCreated())
+                .andExpect(header().string("Idempotent-Replayed", "true"))
+                .andExpect(header().string("ETag", first.getResponse().getHeader("ETag")))
+                .andExpect(jsonPath("$.id").value(id));
+
+        mockMvc.perform(post("/orders")
+                        .header("Idempotency-Key", key)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body.replace("Alice", "Bob")))
+                .andExpect(status().isUnprocessableEntity());
+
+        assertEquals(1, orderRepository.count());
+        assertEquals(id, mongoTemplate.findById(key, IdempotencyRecord.class).getResponse().id());
+    }
+
+    @Test
+    void createOrder_withIdempotencyKey_doesNotRememberRejectedRequests() throws Exception {
+        String key = UUID.randomUUID().toString();
+        String body = """
+                { "clientName": "%s", "deliveryDate": "%s", "items": [ { "fruitName": "Apple", "quantityInKilos": 5 } ] }
+                """;
+
+        mockMvc.perform(post("/orders")
+                        .header("Idempotency-Key", key)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body.formatted("", LocalDate.now().plusDays(1))))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Validation Error"));
+
+        mockMvc.perform(post("/orders")
+                        .header("Idempotency-Key", key)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body.formatted("Alice", LocalDate.now().plusDays(1))))
+                .andExpect(status().isCreated())
+                .andExpect(header().string("Idempotent-Replayed", "false"));
+    }
+
+    @Test
+    void createOrder_withIdempotencyKey_keepsTheClaim_whenTheActionFailsAfterValidation() {
+        String key = UUID.randomUUID().toString();
+        OrderCreateRequest request = new OrderCreateRequest("Alice", LocalDate.now().plusDays(1),
+                List.of(new OrderItemRequest("Apple", 5)));
+
+        assertThrows(IllegalStateException.class, () -> orderIdempotency.execute(key, request, () -> {
+            orderService.createOrder(request);
+            throw new IllegalStateException("rollup unavailable");
+        }));
+
+        IdempotencyRecord claim = mongoTemplate.findById(key, IdempotencyRecord.class);
+        assertNotNull(claim);
+        assertNull(claim.getResponse());
+    }
+
+    @Test
+    void createOrder_withIdempotencyKey_runsConcurrentDuplicatesOnce() throws Exception {
+        String key = UUID.randomUUID().toString();
+        OrderCreateRequest request = new OrderCreateRequest("Alice", LocalDate.now().plusDays(1),
+                List.of(new OrderItemRequest("Apple", 5)));
+        AtomicInteger runs = new AtomicInteger();
+
+        List<Callable<IdempotentResponse>> duplicates = IntStream.range(0, 8)
+                .<Callable<IdempotentResponse>>mapToObj(i -> () -> orderIdempotency.execute(key, request, () -> {
+                    runs.incrementAndGet();
+                    return orderService.createOrder(request);
+                }))
+                .toList();
+
+        List<Future<IdempotentResponse>> responses;
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            responses = executor.invokeAll(duplicates);
+        }
+
+        assertEquals(1, runs.get());
+        assertEquals(1, orderRepository.count());
+        for (Future<IdempotentResponse> response : responses) {
+            assertEquals(orderRepository.findAll().get(0).getId(), response.get().response().id());
+        }
+    }
+
+    @Test
+    void createOrders_insertsValidOrdersAndReportsInvalidOnes() throws Exception {
+
+        String body = """
+                [
+                  { "clientName": "Alice", "deliveryDate": "%1$s", "items": [ { "fruitName": "Apple", "quantityInKilos": 5 } ] },
+                  { "clientName": "", "deliveryDate": "%1$s", "items": [ { "fruitName": "Apple", "quantityInKilos": 5 } ] },
+                  { "clientName": "Bob", "deliveryDate": "%1$s", "items": [ { "fruitName": "Pear", "quantityInKilos": 0 } ] },
+                  { "clientName": "Carol", "deliveryDate": "not-a-date", "items": [ { "fruitName": "Pear", "quantityInKilos": 1 } ] },
+                  { "clientName": "Dave", "deliveryDate": "%1$s", "items": [ null ] },
+                  42
+                ]
+                """.formatted(LocalDate.now().plusDays(1));
+
+        mockMvc.perform(post("/orders/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(6))
+                .andExpect(jsonPath("$[0].id").exists())
+                .andExpect(jsonPath("$[1].error").value("Client name cannot be empty"))
+                .andExpect(jsonPath("$[2].error").value("Quantity must be > 0"))
+                .andExpect(jsonPath("$[3].error").value("Malformed order"))
+                .andExpect(jsonPath("$[4].error").value("Items cannot be null"))
+                .andExpect(jsonPath("$[5].error").value("Malformed order"));
+
+        assertEquals(1, orderRepository.count());
+    }
+
+    @Test
+    void createOrders_acceptsNdjsonAndReportsMalformedLines() throws Exception {
+
+        String body = """
+                { "clientName": "Alice", "deliveryDate": "%1$s", "items": [ { "fruitName": "Apple", "quantityInKilos": 5 } ] }
+                { "clientName": "Bob",
+                { "clientName": "Carol", "deliveryDate": "%1$s", "items": [ { "fruitName": "Pear", "quantityInKilos": 2 } ] }
+                """.formatted(LocalDate.now().plusDays(1));
+
+        mockMvc.perform(post("/orders/batch")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[0].id").exists())
+                .andExpect(jsonPath("$[1].error").value("Malformed order"))
+                .andExpect(jsonPath("$[2].id").exists());
+
+        assertEquals(2, orderRepository.count());
+    }
+
+    @Test
+    void createOrders_returnsPayloadTooLarge_whenBatchExceedsMaxOrders() throws Exception {
+        int tooMany = 10_001;
+
+        mockMvc.perform(post("/orders/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[" + String.join(",", Collections.nCopies(tooMany, "{}")) + "]"))
+                .andExpect(status().isPayloadTooLarge())
+                .andExpect(jsonPath("$.message").value("Batch exceeds 10000 orders"));
+
+        mockMvc.perform(post("/orders/batch")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(String.join("\n", Collections.nCopies(tooMany, "{}"))))
+                .andExpect(status().isPayloadTooLarge());
+
+        assertEquals(0, orderRepository.count());
+    }
+
     @Test
     void getAllOrders_returnsEmptyList_whenNoOrdersExist() throws Exception {
         mockMvc.perform(get("/orders"))
@@ -162,6 +432,235 @@ class OrderIntegrationTest {
                 .andExpect(jsonPath("$[1].clientName").value("Anna"));
     }
 
+    @Test
+    void getAllOrders_returnsNextCursor_whenMoreOrdersRemain() throws Exception {
+
+        orderRepository.save(new Order("John", LocalDate.now().plusDays(1), List.of(new OrderItem("Apple", 2))));
+        orderRepository.save(new Order("Anna", LocalDate.now().plusDays(2), List.of(new OrderItem("Banana", 3))));
+        orderRepository.save(new Order("Mark", LocalDate.now().plusDays(3), List.of(new OrderItem("Pear", 1))));
+
+        MvcResult firstPage = mockMvc.perform(get("/orders").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].clientName").value("John"))
+                .andExpect(jsonPath("$[1].clientName").value("Anna"))
+                .andExpect(header().exists("X-Next-Cursor"))
+                .andReturn();
+
+        mockMvc.perform(get("/orders")
+                        .param("limit", "2")
+                        .param("cursor", firstPage.getResponse().getHeader("X-Next-Cursor")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].clientName").value("Mark"))
+                .andExpect(header().doesNotExist("X-Next-Cursor"));
+    }
+
+    @Test
+    void searchOrders_matchesClientNamePrefixes_ignoringCaseAndAccents_andPagesInKeyOrder() throws Exception {
+        LocalDate date = LocalDate.now().plusDays(1);
+        orderRepository.save(new Order("Fruit Mart Sl", date, List.of(new OrderItem("Apple", 2))));
+        orderRepository.save(new Order("Fruit Mart", date, List.of(new OrderItem("Apple", 2))));
+        orderRepository.save(new Order("Frúit  Market", date, List.of(new OrderItem("Pear", 1))));
+        orderRepository.save(new Order("Fruits & Co", date, List.of(new OrderItem("Pear", 1))));
+
+        MvcResult firstPage = mockMvc.perform(get("/orders/search").param("clientName", "FRUIT MA").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].clientName").value("Frúit  Market"))
+                .andExpect(jsonPath("$[1].clientName").value("Fruit Mart"))
+                .andExpect(header().exists("X-Next-Cursor"))
+                .andReturn();
+
+        mockMvc.perform(get("/orders/search")
+                        .param("clientName", "FRUIT MA")
+                        .param("limit", "2")
+                        .param("cursor", firstPage.getResponse().getHeader("X-Next-Cursor")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].clientName").value("Fruit Mart Sl"))
+                .andExpect(header().doesNotExist("X-Next-Cursor"));
+
+        mockMvc.perform(get("/orders/search").param("clientName", "fruit ma").param("fruitName", "pe"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].clientName").value("Frúit  Market"));
+    }
+
+    @Test
+    void searchOrders_matchesFruitNamePrefixes_andFollowsRenames() throws Exception {
+        LocalDate date = LocalDate.now().plusDays(1);
+        Order apricot = orderRepository.save(new Order("Anna", date, List.of(new OrderItem("Apricot", 1))));
+        orderRepository.save(new Order("John", date, List.of(new OrderItem("Banana", 1), new OrderItem("Apple", 4))));
+        orderRepository.save(new Order("Mark", date, List.of(new OrderItem("Pear", 1))));
+
+        mockMvc.perform(get("/orders/search").param("fruitName", "ap"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].clientName").value("Anna"))
+                .andExpect(jsonPath("$[1].clientName").value("John"));
+        mockMvc.perform(get("/orders/search").param("fruitName", "kiwi"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(0));
+
+        mockMvc.perform(patch("/orders/" + apricot.getId())
+                        .contentType("application/merge-patch+json")
+                        .content("{ \"clientName\": \"Zoe\" }"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/orders/search").param("clientName", "anna"))
+                .andExpect(jsonPath("$.length()").value(0));
+        mockMvc.perform(get("/orders/search").param("clientName", "zo"))
+                .andExpect(jsonPath("$[0].id").value(apricot.getId()));
+    }
+
+    @Test
+    void searchOrders_returnsBadRequest_withoutAPrefix() throws Exception {
+        mockMvc.perform(get("/orders/search").param("clientName", " "))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("clientName or fruitName is required"));
+    }
+
+    @Test
+    void getAllOrders_returnsBadRequest_whenCursorIsInvalid() throws Exception {
+        mockMvc.perform(get("/orders").param("cursor", "%%%"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Invalid cursor"));
+    }
+
+    @Test
+    void getAllOrders_streamsNdjson_whenRequested() throws Exception {
+
+        orderRepository.save(new Order("John", LocalDate.now().plusDays(1), List.of(new OrderItem("Apple", 2))));
+        orderRepository.save(new Order("Anna", LocalDate.now().plusDays(2), List.of(new OrderItem("Banana", 3))));
+
+        MvcResult result = mockMvc.perform(get("/orders").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].contains("\"clientName\":\"John\""));
+        assertTrue(lines[1].contains("\"clientName\":\"Anna\""));
+    }
+
+    @Test
+    void getAllOrders_filtersByClientNameAndDeliveryDateRange() throws Exception {
+
+        orderRepository.save(new Order("John", LocalDate.now().plusDays(1), List.of(new OrderItem("Apple", 2))));
+        orderRepository.save(new Order("John", LocalDate.now().plusDays(5), List.of(new OrderItem("Banana", 3))));
+        orderRepository.save(new Order("Anna", LocalDate.now().plusDays(1), List.of(new OrderItem("Apple", 1))));
+
+        mockMvc.perform(get("/orders")
+                        .param("clientName", "John")
+                        .param("deliveryFrom", LocalDate.now().toString())
+                        .param("deliveryTo", LocalDate.now().plusDays(2).toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].clientName").value("John"))
+                .andExpect(jsonPath("$[0].items[0].fruitName").value("Apple"));
+    }
+
+    @Test
+    void getAllOrders_filtersByFruitName() throws Exception {
+
+        orderRepository.save(new Order("John", LocalDate.now().plusDays(1),
+                List.of(new OrderItem("Apple", 2), new OrderItem("Pear", 1))));
+        orderRepository.save(new Order("Anna", LocalDate.now().plusDays(2), List.of(new OrderItem("Banana", 3))));
+
+        mockMvc.perform(get("/orders").param("fruitName", "Pear"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].clientName").value("John"));
+    }
+
+    @Test
+    void getOrders_returnOnlyTheRequestedFields() throws Exception {
+        Order order = orderRepository.save(new Order("John", LocalDate.now().plusDays(1),
+                List.of(new OrderItem("Apple", 2), new OrderItem("Pear", 3))));
+
+        mockMvc.perform(get("/orders").param("fields", "id,clientName"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(order.getId()))
+                .andExpect(jsonPath("$[0].clientName").value("John"))
+                .andExpect(jsonPath("$[0].deliveryDate").doesNotExist())
+                .andExpect(jsonPath("$[0].items").doesNotExist());
+
+        mockMvc.perform(get("/orders/" + order.getId()).param("fields", "items"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"0\""))
+                .andExpect(jsonPath("$.id").value(order.getId()))
+                .andExpect(jsonPath("$.clientName").doesNotExist())
+                .andExpect(jsonPath("$.items.length()").value(2));
+
+        MvcResult ndjson = mockMvc.perform(get("/orders").param("fields", "deliveryDate")
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String line = mockMvc.perform(asyncDispatch(ndjson))
+                .andReturn().getResponse().getContentAsString().trim();
+        assertEquals("{\"id\":\"%s\",\"deliveryDate\":\"%s\"}".formatted(order.getId(), order.getDeliveryDate()), line);
+
+        mockMvc.perform(get("/orders").param("fields", "id,price"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getAllOrders_returnsBadRequest_whenDeliveryRangeIsInverted() throws Exception {
+        mockMvc.perform(get("/orders")
+                        .param("deliveryFrom", LocalDate.now().plusDays(3).toString())
+                        .param("deliveryTo", LocalDate.now().plusDays(1).toString()))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("deliveryFrom must not be after deliveryTo"));
+    }
+
+    @Test
+    void filteredQueries_doNotScanTheWholeCollection() {
+
+        for (int i = 0; i < 20; i++) {
+            orderRepository.save(new Order("Client " + i, LocalDate.now().plusDays(i % 5 + 1),
+                    List.of(new OrderItem("Fruit " + i, 1))));
+        }
+
+        Date from = new Date();
+        Date to = new Date(from.getTime() + 86_400_000L);
+
+        assertDoesNotScanCollection(new Document(OrderFields.CLIENT_NAME, "Client 3"));
+        assertDoesNotScanCollection(new Document(OrderFields.CLIENT_NAME, "Client 3")
+                .append(OrderFields.DELIVERY_DATE, new Document("$gte", from).append("$lte", to)));
+        assertDoesNotScanCollection(new Document(OrderFields.DELIVERY_DATE, new Document("$gte", from).append("$lte", to)));
+        assertDoesNotScanCollection(new Document(OrderFields.ITEM_FRUIT_ID, fruitCatalog.idOf("Fruit 3")));
+        assertDoesNotScanCollection(new Document(OrderFields.CLIENT_KEY, new Document("$gte", "client 1").append("$lt", "client 1\uffff")),
+                new Document(OrderFields.CLIENT_KEY, 1).append("_id", 1));
+    }
+
+    private void assertDoesNotScanCollection(Document filter) {
+        assertDoesNotScanCollection(filter, new Document("_id", 1));
+    }
+
+    private void assertDoesNotScanCollection(Document filter, Document sort) {
+        Document find = new Document("find", "orders")
+                .append("filter", filter)
+                .append("sort", sort)
+                .append("limit", 101);
+
+        Document explain;
+        try {
+            explain = mongoTemplate.getDb().runCommand(new Document("explain", find).append("verbosity", "queryPlanner"));
+        } catch (MongoCommandException e) {
+            abort("explain is not supported by this MongoDB server");
+            return;
+        }
+
+        String winningPlan = explain.get("queryPlanner", Document.class).get("winningPlan", Document.class).toJson();
+        assertFalse(winningPlan.contains("COLLSCAN"), "Collection scan for filter " + filter.toJson() + ": " + winningPlan);
+    }
+
     @Test
     void getOrderById_returnsOrder_whenIdExists() throws Exception {
         Order order = new Order("John", LocalDate.now().plusDays(1),
@@ -176,6 +675,376 @@ class OrderIntegrationTest {
                 .andExpect(jsonPath("$.items[0].quantityInKilos").value(2));
     }
 
+    @Test
+    void getOrderById_returnsETag_andNotModifiedWhenItMatches() throws Exception {
+        Order order = orderRepository.save(new Order("John", LocalDate.now().plusDays(1),
+                List.of(new OrderItem("Apple", 2))));
+
+        String eTag = mockMvc.perform(get("/orders/" + order.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"0\""))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/orders/" + order.getId()).header("If-None-Match", eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void updateOrder_returnsPreconditionFailed_whenIfMatchIsStale() throws Exception {
+        Order order = orderRepository.save(new Order("John", LocalDate.now().plusDays(1),
+                List.of(new OrderItem("Apple", 2))));
+
+        String json = """
+            {
+              "clientName": "Updated Client",
+              "deliveryDate": "%s",
+              "items": [
+                {"fruitName": "Orange", "quantityInKilos": 5}
+              ]
+            }
+            """.formatted(LocalDate.now().plusDays(2));
+
+        mockMvc.perform(put("/orders/" + order.getId())
+                        .header("If-Match", "\"0\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"1\""));
+
+        mockMvc.perform(put("/orders/" + order.getId())
+                        .header("If-Match", "\"0\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json))
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(jsonPath("$.status").value(412));
+    }
+
+    @Test
+    void deleteOrder_honoursIfMatch() throws Exception {
+        Order order = orderRepository.save(new Order("John", LocalDate.now().plusDays(1),
+                List.of(new OrderItem("Apple", 2))));
+
+        mockMvc.perform(delete("/orders/" + order.getId()).header("If-Match", "\"7\""))
+                .andExpect(status().isPreconditionFailed());
+
+        mockMvc.perform(delete("/orders/" + order.getId()).header("If-Match", "\"0\""))
+                .andExpect(status().isNoContent());
+        assertTrue(orderRepository.findById(order.getId()).isEmpty());
+    }
+
+    @Test
+    void deleteOrder_rejectsWeakIfMatch_andTreatsAnyAsMustExist() throws Exception {
+        Order order = orderRepository.save(new Order("John", LocalDate.now().plusDays(1),
+                List.of(new OrderItem("Apple", 2))));
+
+        mockMvc.perform(delete("/orders/" + order.getId()).header("If-Match", "W/\"0\""))
+                .andExpect(status().isPreconditionFailed());
+
+        mockMvc.perform(delete("/orders/" + order.getId()).header("If-Match", "*"))
+                .andExpect(status().isNoContent());
+
+        mockMvc.perform(delete("/orders/" + order.getId()).header("If-Match", "*"))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(delete("/orders/" + order.getId()))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void deleteOrder_matchesAnyStrongTagOfAnIfMatchList() throws Exception {
+        Order order = orderRepository.save(new Order("John", LocalDate.now().plusDays(1),
+                List.of(new OrderItem("Apple", 2))));
+
+        mockMvc.perform(delete("/orders/" + order.getId()).header("If-Match", "\"5\", W/\"0\", \"6\""))
+                .andExpect(status().isPreconditionFailed());
+
+        mockMvc.perform(delete("/orders/" + order.getId()).header("If-Match", "\"5\", \"0\""))
+                .andExpect(status().isNoContent());
+        assertTrue(orderRepository.findById(order.getId()).isEmpty());
+    }
+
+    @Test
+    void getFruitDemand_sumsKilosPerDeliveryDateAndFruit() throws Exception {
+        LocalDate day1 = LocalDate.now().plusDays(1);
+        LocalDate day2 = LocalDate.now().plusDays(2);
+
+        orderRepository.save(new Order("John", day1, List.of(new OrderItem("Apple", 2), new OrderItem("Pear", 1))));
+        orderRepository.save(new Order("Anna", day1, List.of(new OrderItem("Apple", 3))));
+        orderRepository.save(new Order("Mark", day2, List.of(new OrderItem("Apple", 4))));
+        orderRepository.save(new Order("Lena", LocalDate.now().plusDays(9), List.of(new OrderItem("Apple", 7))));
+        rollupJob.rebuild();
+
+        MvcResult result = mockMvc.perform(get("/orders/analytics/fruit-demand")
+                        .param("deliveryFrom", day1.toString())
+                        .param("deliveryTo", day2.toString()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[0].deliveryDate").value(day1.toString()))
+                .andExpect(jsonPath("$[0].fruitName").value("Apple"))
+                .andExpect(jsonPath("$[0].totalKilos").value(5))
+                .andExpect(jsonPath("$[1].fruitName").value("Pear"))
+                .andExpect(jsonPath("$[1].totalKilos").value(1))
+                .andExpect(jsonPath("$[2].deliveryDate").value(day2.toString()))
+                .andExpect(jsonPath("$[2].totalKilos").value(4));
+    }
+
+    @Test
+    void getFruitDemand_countsOnlyTheRequestedFruit() throws Exception {
+        LocalDate day = LocalDate.now().plusDays(1);
+        orderRepository.save(new Order("John", day, List.of(new OrderItem("Apple", 2), new OrderItem("Pear", 1))));
+        rollupJob.rebuild();
+
+        MvcResult result = mockMvc.perform(get("/orders/analytics/fruit-demand")
+                        .param("fruitName", "Pear")
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertEquals(1, lines.length);
+        assertTrue(lines[0].contains("\"fruitName\":\"Pear\""));
+        assertTrue(lines[0].contains("\"totalKilos\":1"));
+    }
+
+    @Test
+    void getFruitDemand_aggregatesOrders_whenFilteringByClient() throws Exception {
+        LocalDate day = LocalDate.now().plusDays(1);
+        orderRepository.save(new Order("John", day, List.of(new OrderItem("Apple", 2))));
+        orderRepository.save(new Order("Anna", day, List.of(new OrderItem("Apple", 3))));
+
+        MvcResult result = mockMvc.perform(get("/orders/analytics/fruit-demand").param("clientName", "John"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].totalKilos").value(2));
+    }
+
+    @Test
+    void orderWrites_keepDemandRollupInStep() throws Exception {
+        LocalDate day = LocalDate.now().plusDays(1);
+        String body = """
+                {
+                  "clientName": "Alice",
+                  "deliveryDate": "%s",
+                  "items": [ { "fruitName": "Apple", "quantityInKilos": %d } ]
+                }
+                """;
+
+        String id = JsonPath.read(mockMvc.perform(post("/orders")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body.formatted(day, 5)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString(), "$.id");
+        mockMvc.perform(post("/orders")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body.formatted(day, 2)))
+                .andExpect(status().isCreated());
+        assertEquals(7, kilosOf(day, "Apple"));
+
+        mockMvc.perform(put("/orders/" + id)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body.formatted(day, 1)))
+                .andExpect(status().isOk());
+        assertEquals(3, kilosOf(day, "Apple"));
+
+        mockMvc.perform(delete("/orders/" + id))
+                .andExpect(status().isNoContent());
+        assertEquals(2, kilosOf(day, "Apple"));
+
+        assertEquals(0, rollupJob.verify().mismatches());
+    }
+
+    @Test
+    void rollupJob_detectsAndRepairsDrift() {
+        LocalDate day = LocalDate.now().plusDays(1);
+        orderRepository.save(new Order("John", day, List.of(new OrderItem("Apple", 2))));
+        orderRepository.save(new Order("Anna", day.plusDays(40), List.of(new OrderItem("Pear", 4))));
+        demandRepository.save(new DailyFruitDemand(null, day, "Apple", 9));
+        demandRepository.save(new DailyFruitDemand(null, day, "Kiwi", 1));
+
+        FruitDemandRollupReport verified = rollupJob.verify();
+        assertEquals(3, verified.mismatches());
+        assertEquals(2, verified.chunks());
+
+        rollupJob.rebuild();
+
+        assertEquals(0, rollupJob.verify().mismatches());
+        assertEquals(2, kilosOf(day, "Apple"));
+        assertEquals(4, kilosOf(day.plusDays(40), "Pear"));
+        assertEquals(2, demandRepository.count());
+    }
+
+    @Test
+    void legacyOrders_areReadableAndMigratedToTheCompactSchema() throws Exception {
+        Document legacy = new Document("clientName", "Legacy Client")
+                .append("deliveryDate", Date.from(LocalDate.now().plusDays(3).atStartOfDay(ZoneId.systemDefault()).toInstant()))
+                .append("items", List.of(new Document("fruitName", "Quince").append("quantityInKilos", 7)))
+                .append("version", 2L);
+        mongoTemplate.getCollection("orders").insertOne(legacy);
+        String id = legacy.getObjectId("_id").toHexString();
+
+        mockMvc.perform(get("/orders/" + id))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.clientName").value("Legacy Client"))
+                .andExpect(jsonPath("$.items[0].fruitName").value("Quince"))
+                .andExpect(jsonPath("$.items[0].quantityInKilos").value(7));
+
+        OrderSchemaMigrationReport report = schemaMigration.migrate();
+        assertEquals(1, report.migrated());
+        assertEquals(0, report.remaining());
+
+        Document stored = mongoTemplate.getCollection("orders").find(new Document("_id", legacy.getObjectId("_id"))).first();
+        assertEquals("Legacy Client", stored.getString(OrderFields.CLIENT_NAME));
+        assertFalse(stored.containsKey("clientName"));
+        assertEquals(fruitCatalog.idOf("Quince"), stored.getList(OrderFields.ITEMS, Document.class).get(0).getInteger(OrderFields.FRUIT_ID));
+        assertEquals(2L, stored.get(OrderFields.VERSION, Number.class).longValue());
+        assertEquals("legacy client", stored.getString(OrderFields.CLIENT_KEY));
+
+        mockMvc.perform(get("/orders").param("clientName", "Legacy Client"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(id));
+    }
+
+    @Test
+    void orderArchiver_movesPastOrdersToMonthlyCollections_andReadsFallBackToThem() throws Exception {
+        LocalDate lastYear = LocalDate.now().minusYears(1);
+        Order archived = orderRepository.save(new Order("Old Client", lastYear, List.of(new OrderItem("Apple", 2))));
+        Order older = orderRepository.save(new Order("Old Client", lastYear.minusMonths(1), List.of(new OrderItem("Pear", 3))));
+        Order live = orderRepository.save(new Order("New Client", LocalDate.now().plusDays(1), List.of(new OrderItem("Apple", 4))));
+        rollupJob.rebuild();
+
+        OrderArchiveReport report = orderArchiver.archive();
+        assertEquals(2, report.archived());
+        assertEquals(0, report.remaining());
+        assertEquals(List.of(live.getId()), orderRepository.findAll().stream().map(Order::getId).toList());
+        assertEquals(1, mongoTemplate.getCollection(OrderArchiveCollections.of(lastYear)).countDocuments());
+        assertEquals(1, mongoTemplate.getCollection(OrderArchiveCollections.of(lastYear.minusMonths(1))).countDocuments());
+
+        mockMvc.perform(get("/orders/" + archived.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.clientName").value("Old Client"))
+                .andExpect(jsonPath("$.items[0].fruitName").value("Apple"));
+        mockMvc.perform(get("/orders"))
+                .andExpect(jsonPath("$.length()").value(1));
+        mockMvc.perform(get("/orders").param("includeArchived", "true"))
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[0].id").value(archived.getId()))
+                .andExpect(jsonPath("$[1].id").value(older.getId()))
+                .andExpect(jsonPath("$[2].id").value(live.getId()));
+        mockMvc.perform(get("/orders").param("includeArchived", "true")
+                        .param("deliveryTo", lastYear.toString())
+                        .param("limit", "1"))
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(archived.getId()))
+                .andExpect(header().exists("X-Next-Cursor"));
+
+        assertEquals(0, rollupJob.verify().mismatches());
+    }
+
+    @Test
+    void orderArchiver_skipsTheRun_whileAnotherRunHoldsTheLease() {
+        Order old = orderRepository.save(new Order("Old Client", LocalDate.now().minusYears(1), List.of(new OrderItem("Apple", 2))));
+        mongoTemplate.getCollection("leases").insertOne(new Document("_id", "orders-archive")
+                .append("owner", "another-node")
+                .append("until", Date.from(Instant.now().plusSeconds(60))));
+        try {
+            OrderArchiveReport report = orderArchiver.archive();
+
+            assertEquals(0, report.archived());
+            assertEquals(1, report.remaining());
+            assertTrue(orderRepository.existsById(old.getId()));
+        } finally {
+            mongoTemplate.getCollection("leases").deleteMany(new Document());
+        }
+    }
+
+    @Test
+    void orderArchiver_dropsTheArchivedCopy_ofAnOrderDeletedMidBatch() throws Exception {
+        LocalDate longAgo = LocalDate.now().minusYears(3);
+        Order deleted = orderRepository.save(new Order("Old Client", longAgo, List.of(new OrderItem("Apple", 2))));
+        Order kept = orderRepository.save(new Order("Old Client", longAgo, List.of(new OrderItem("Pear", 3))));
+        doAnswer(invocation -> {
+            orderService.deleteOrder(deleted.getId(), null);
+            return invocation.callRealMethod();
+        }).when(archivePartitions).add(OrderArchiveCollections.of(longAgo));
+
+        OrderArchiveReport report = orderArchiver.archive();
+
+        assertEquals(1, report.archived());
+        assertEquals(1, report.conflicts());
+        assertTrue(orderRepository.findAll().isEmpty());
+        assertEquals(1, mongoTemplate.getCollection(OrderArchiveCollections.of(longAgo)).countDocuments());
+        mockMvc.perform(get("/orders/" + deleted.getId()))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/orders/" + kept.getId()))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void archiveReads_returnAnOrderCaughtMidArchiveOnce() throws Exception {
+        LocalDate lastYear = LocalDate.now().minusYears(1);
+        Order archived = orderRepository.save(new Order("Old Client", lastYear, List.of(new OrderItem("Apple", 2))));
+        Order moving = orderRepository.save(new Order("Old Client", lastYear, List.of(new OrderItem("Apple", 3))));
+        rollupJob.rebuild();
+        orderArchiver.archive();
+        orderRepository.insert(moving);
+
+        mockMvc.perform(get("/orders").param("includeArchived", "true"))
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].id").value(archived.getId()))
+                .andExpect(jsonPath("$[1].id").value(moving.getId()));
+        MvcResult streamed = mockMvc.perform(get("/orders").param("includeArchived", "true").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(streamed)).andReturn().getResponse().getContentAsString();
+        String[] lines = body.split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].contains(archived.getId()));
+        assertTrue(lines[1].contains(moving.getId()));
+
+        assertEquals(0, rollupJob.verify().mismatches());
+    }
+
+    @Test
+    void repositoryCalls_passThroughTheMongoBulkhead() throws Exception {
+        Timer bulkheadWait = meterRegistry.get("orders.mongo.bulkhead.wait").timer();
+        long before = bulkheadWait.count();
+
+        mockMvc.perform(get("/orders/unknown-id-123"))
+                .andExpect(status().isNotFound());
+
+        assertTrue(bulkheadWait.count() > before);
+    }
+
+    @Test
+    void orderOperations_recordServiceMapperJsonAndErrorMetrics() throws Exception {
+        String body = """
+                { "clientName": "Alice", "deliveryDate": "%s", "items": [ { "fruitName": "Apple", "quantityInKilos": 5 } ] }
+                """.formatted(LocalDate.now().plusDays(1));
+
+        mockMvc.perform(post("/orders").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isCreated());
+        mockMvc.perform(get("/orders/unknown-id-456"))
+                .andExpect(status().isNotFound());
+
+        assertTrue(meterRegistry.get("orders.service").tag("method", "createOrder").timer().count() > 0);
+        assertTrue(meterRegistry.get("orders.mapper").tag("method", "toEntity").timer().count() > 0);
+        assertTrue(meterRegistry.get("orders.http.json").tag("direction", "read").tag("type", "OrderCreateRequest").timer().count() > 0);
+        assertTrue(meterRegistry.get("orders.http.json").tag("direction", "write").tag("type", "OrderResponse").timer().count() > 0);
+        assertTrue(meterRegistry.get("orders.errors").tag("exception", "NotFoundException").tag("status", "404").counter().count() > 0);
+    }
+
     @Test
     void getOrderById_returnsNotFound_whenIdNotExists() throws Exception {
         mockMvc.perform(get("/orders/unknown-id-123"))
@@ -228,6 +1097,137 @@ class OrderIntegrationTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    void patchOrder_changesOnlyTheSentFieldsAndKeepsDemandRollupInStep() throws Exception {
+        LocalDate firstDay = LocalDate.now().plusDays(1);
+        LocalDate secondDay = LocalDate.now().plusDays(2);
+        String id = orderService.createOrder(new OrderCreateRequest("John", firstDay,
+                List.of(new OrderItemRequest("Apple", 2), new OrderItemRequest("Pear", 1)))).id();
+
+        mockMvc.perform(patch("/orders/" + id)
+                        .contentType("application/merge-patch+json")
+                        .content("""
+                                { "deliveryDate": "%s", "items": { "Apple": 4, "Kiwi": 3 } }
+                                """.formatted(secondDay)))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"1\""))
+                .andExpect(jsonPath("$.clientName").value("John"))
+                .andExpect(jsonPath("$.deliveryDate").value(secondDay.toString()))
+                .andExpect(jsonPath("$.items[0].fruitName").value("Apple"))
+                .andExpect(jsonPath("$.items[0].quantityInKilos").value(4))
+                .andExpect(jsonPath("$.items[1].fruitName").value("Pear"))
+                .andExpect(jsonPath("$.items[2].fruitName").value("Kiwi"))
+                .andExpect(jsonPath("$.items[2].quantityInKilos").value(3));
+
+        mockMvc.perform(patch("/orders/" + id)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                { "items": { "Fig": 5 } }
+                                """))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(4));
+
+        Order stored = orderRepository.findById(id).orElseThrow();
+        assertEquals(List.of("Apple", "Pear", "Kiwi", "Fig"), stored.getItems().stream().map(OrderItem::getFruitName).toList());
+        assertEquals(2L, stored.getVersion());
+        assertEquals(0, kilosOf(firstDay, "Apple"));
+        assertEquals(4, kilosOf(secondDay, "Apple"));
+        assertEquals(1, kilosOf(secondDay, "Pear"));
+        assertEquals(3, kilosOf(secondDay, "Kiwi"));
+        assertEquals(5, kilosOf(secondDay, "Fig"));
+    }
+
+    @Test
+    void patchOrder_removesItemsWithNull_butNotTheLastOne() throws Exception {
+        LocalDate day = LocalDate.now().plusDays(1);
+        String id = orderService.createOrder(new OrderCreateRequest("John", day,
+                List.of(new OrderItemRequest("Apple", 2), new OrderItemRequest("Pear", 1), new OrderItemRequest("Kiwi", 6)))).id();
+
+        mockMvc.perform(patch("/orders/" + id)
+                        .contentType("application/merge-patch+json")
+                        .content("""
+                                { "items": { "Pear": null, "Grape": null } }
+                                """))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(2));
+
+        mockMvc.perform(patch("/orders/" + id)
+                        .contentType("application/merge-patch+json")
+                        .content("""
+                                { "items": { "Kiwi": null, "Melon": 2 } }
+                                """))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].fruitName").value("Apple"))
+                .andExpect(jsonPath("$.items[1].fruitName").value("Melon"));
+
+        mockMvc.perform(patch("/orders/" + id)
+                        .contentType("application/merge-patch+json")
+                        .content("""
+                                { "items": { "Apple": null, "Melon": null } }
+                                """))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(patch("/orders/" + id)
+                        .contentType("application/merge-patch+json")
+                        .content("""
+                                { "clientName": " " }
+                                """))
+                .andExpect(status().isBadRequest());
+
+        assertEquals(0, kilosOf(day, "Pear"));
+        assertEquals(0, kilosOf(day, "Kiwi"));
+        assertEquals(2, kilosOf(day, "Melon"));
+        assertEquals(2, orderRepository.findById(id).orElseThrow().getItems().size());
+    }
+
+    @Test
+    void patchOrder_returnsBadRequest_whenARequiredFieldIsNull() throws Exception {
+        Order order = orderRepository.save(new Order("John", LocalDate.now().plusDays(1),
+                List.of(new OrderItem("Apple", 2))));
+
+        for (String field : List.of("clientName", "deliveryDate", "items")) {
+            mockMvc.perform(patch("/orders/" + order.getId())
+                            .contentType("application/merge-patch+json")
+                            .content("{ \"%s\": null }".formatted(field)))
+                    .andExpect(status().isBadRequest())
+                    .andExpect(jsonPath("$.message").value(field + " cannot be null"));
+        }
+
+        Order unchanged = orderRepository.findById(order.getId()).orElseThrow();
+        assertEquals("John", unchanged.getClientName());
+        assertEquals(0L, unchanged.getVersion());
+    }
+
+    @Test
+    void patchOrder_honoursIfMatch_andReturnsNotFoundForUnknownIds() throws Exception {
+        Order order = orderRepository.save(new Order("John", LocalDate.now().plusDays(1),
+                List.of(new OrderItem("Apple", 2))));
+
+        mockMvc.perform(patch("/orders/" + order.getId())
+                        .header("If-Match", "\"3\"")
+                        .contentType("application/merge-patch+json")
+                        .content("""
+                                { "clientName": "Jane" }
+                                """))
+                .andExpect(status().isPreconditionFailed());
+
+        mockMvc.perform(patch("/orders/" + order.getId())
+                        .header("If-Match", "\"0\"")
+                        .contentType("application/merge-patch+json")
+                        .content("""
+                                { "clientName": "Jane" }
+                                """))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.clientName").value("Jane"));
+
+        mockMvc.perform(patch("/orders/unknown-id")
+                        .contentType("application/merge-patch+json")
+                        .content("""
+                                { "clientName": "Jane" }
+                                """))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     void deleteOrder_returnsNoContent_whenIdExists() throws Exception {
 
@@ -247,5 +1247,11 @@ class OrderIntegrationTest {
         mockMvc.perform(delete("/orders/unknown-id"))
                 .andExpect(status().isNotFound());
     }
-}
 
+    private long kilosOf(LocalDate day, String fruitName) {
+        return demandRepository.findAll().stream()
+                .filter(row -> row.getDeliveryDate().equals(day) && row.getFruitName().equals(fruitName))
+                .mapToLong(DailyFruitDemand::getTotalKilos)
+                .sum();
+    }
+}
@@ -0,0 +1,103 @@
+package cat.itacademy.s04.t02.n03.fruit.integration;
+
+import cat.itacademy.s04.t02.n03.fruit.model.Order;
+import cat.itacademy.s04.t02.n03.fruit.model.OrderItem;
+import cat.itacademy.s04.t02.n03.fruit.repository.OrderRepository;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "management.tracing.sampling.probability=1.0")
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+class OrderTracingIntegrationTest {
+
+    private static final String TRACE_ID = "4bf92f3577b34da6a3ce929d0e0e4736";
+
+    @TestConfiguration
+    static class InMemoryExporterConfig {
+
+        @Bean
+        InMemorySpanExporter inMemorySpanExporter() {
+            return InMemorySpanExporter.create();
+        }
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private InMemorySpanExporter exporter;
+
+    @Autowired
+    private SdkTracerProvider tracerProvider;
+
+    @BeforeEach
+    void reset() {
+        orderRepository.deleteAll();
+        tracerProvider.forceFlush().join(5, TimeUnit.SECONDS);
+        exporter.reset();
+    }
+
+    @Test
+    void updateOrder_producesOneTraceWithASpanPerLayer() throws Exception {
+        Order existing = orderRepository.save(new Order("John", LocalDate.now().plusDays(1),
+                List.of(new OrderItem("Apple", 2))));
+        tracerProvider.forceFlush().join(5, TimeUnit.SECONDS);
+        exporter.reset();
+
+        mockMvc.perform(put("/orders/" + existing.getId())
+                        .header("traceparent", "00-" + TRACE_ID + "-00f067aa0ba902b7-01")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                { "clientName": "Updated", "deliveryDate": "%s", "items": [ { "fruitName": "Pear", "quantityInKilos": 3 } ] }
+                                """.formatted(LocalDate.now().plusDays(2))))
+                .andExpect(status().isOk());
+        tracerProvider.forceFlush().join(5, TimeUnit.SECONDS);
+
+        List<SpanData> spans = exporter.getFinishedSpanItems();
+        assertTrue(spans.stream().allMatch(span -> span.getTraceId().equals(TRACE_ID)), spans::toString);
+
+        SpanData server = span(spans, "http put /orders/{id}");
+        SpanData controller = span(spans, "order-controller#update-order");
+        SpanData service = span(spans, "order-service-impl#update-order");
+        SpanData mapper = span(spans, "order-mapper#to-response");
+        SpanData findAndModify = span(spans, "orders.findAndModify");
+        SpanData json = span(spans, "json write");
+
+        assertEquals(server.getSpanId(), controller.getParentSpanId());
+        assertEquals(controller.getSpanId(), service.getParentSpanId());
+        assertEquals(service.getSpanId(), mapper.getParentSpanId());
+        assertEquals(server.getSpanId(), json.getParentSpanId());
+        assertEquals(service.getSpanId(), findAndModify.getParentSpanId());
+    }
+
+    private SpanData span(List<SpanData> spans, String name) {
+        return spans.stream()
+                .filter(span -> span.getName().equals(name))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("No span named " + name + " in " + spans.stream().map(SpanData::getName).toList()));
+    }
+}
@@ -0,0 +1,113 @@
+package cat.itacademy.s04.t02.n03.fruit.integration;
+
+import cat.itacademy.s04.t02.n03.fruit.model.DailyFruitDemand;
+import cat.itacademy.s04.t02.n03.fruit.repository.DailyFruitDemandRepository;
+import cat.itacademy.s04.t02.n03.fruit.repository.OrderRepository;
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.Duration;
+import java.time.LocalDate;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "orders.write-behind.enabled=true",
+        "orders.write-behind.directory=target/write-behind/${random.uuid}",
+        "orders.write-behind.segment-size=64KB"
+})
+@AutoConfigureMockMvc
+class OrderWriteBehindIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private DailyFruitDemandRepository demandRepository;
+
+    @BeforeEach
+    void cleanDb() {
+        orderRepository.deleteAll();
+        demandRepository.deleteAll();
+    }
+
+    @Test
+    void createOrder_isAcceptedReadableAtOnceAndStoredInTheBackground() throws Exception {
+        LocalDate deliveryDate = LocalDate.now().plusDays(1);
+
+        MvcResult result = mockMvc.perform(post("/orders")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                { "clientName": "Alice", "deliveryDate": "%s", "items": [ { "fruitName": "Apple", "quantityInKilos": 5 } ] }
+                                """.formatted(deliveryDate)))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.id").exists())
+                .andReturn();
+        String id = JsonPath.read(result.getResponse().getContentAsString(), "$.id");
+        assertEquals("/orders/" + id, result.getResponse().getHeader("Location"));
+
+        mockMvc.perform(get("/orders/" + id))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.clientName").value("Alice"))
+                .andExpect(jsonPath("$.items[0].quantityInKilos").value(5));
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> orderRepository.existsById(id));
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> assertEquals(5L, demandRepository.findAll().stream()
+                .filter(row -> row.getDeliveryDate().equals(deliveryDate))
+                .mapToLong(DailyFruitDemand::getTotalKilos)
+                .sum()));
+    }
+
+    @Test
+    void createOrder_rejectsInvalidRequestsBeforeAcceptingThem() throws Exception {
+        mockMvc.perform(post("/orders")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                { "clientName": "", "deliveryDate": "%s", "items": [] }
+                                """.formatted(LocalDate.now().plusDays(1))))
+                .andExpect(status().isBadRequest());
+
+        assertEquals(0, orderRepository.count());
+    }
+
+    @Test
+    void updateOrder_waitsForTheAcceptedOrderToBeStored() throws Exception {
+        MvcResult result = mockMvc.perform(post("/orders")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                { "clientName": "Bob", "deliveryDate": "%s", "items": [ { "fruitName": "Pear", "quantityInKilos": 2 } ] }
+                                """.formatted(LocalDate.now().plusDays(1))))
+                .andExpect(status().isAccepted())
+                .andExpect(header().exists("ETag"))
+                .andReturn();
+        String id = JsonPath.read(result.getResponse().getContentAsString(), "$.id");
+
+        mockMvc.perform(put("/orders/" + id)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                { "clientName": "Bobby", "deliveryDate": "%s", "items": [ { "fruitName": "Pear", "quantityInKilos": 3 } ] }
+                                """.formatted(LocalDate.now().plusDays(2))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.clientName").value("Bobby"));
+
+        assertTrue(orderRepository.existsById(id));
+    }
+}
@@ -0,0 +1,215 @@
+package cat.itacademy.s04.t02.n03.fruit.integration;
+
+import cat.itacademy.s04.t02.n03.fruit.model.DailyFruitDemand;
+import cat.itacademy.s04.t02.n03.fruit.model.Order;
+import cat.itacademy.s04.t02.n03.fruit.model.OrderItem;
+import cat.itacademy.s04.t02.n03.fruit.repository.DailyFruitDemandRepository;
+import cat.itacademy.s04.t02.n03.fruit.repository.OrderRepository;
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(properties = "spring.main.web-application-type=reactive")
+@AutoConfigureWebTestClient
+class ReactiveOrderIntegrationTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private DailyFruitDemandRepository demandRepository;
+
+    @BeforeEach
+    void cleanDb() {
+        orderRepository.deleteAll();
+        demandRepository.deleteAll();
+    }
+
+    @Test
+    void createOrder_returnsCreated_AndSavedOrder() {
+
+        String body = """
+                {
+                  "clientName": "Alice",
+                  "deliveryDate": "%s",
+                  "items": [
+                    { "fruitName": "Apple", "quantityInKilos": 5 }
+                  ]
+                }
+                """.formatted(LocalDate.now().plusDays(1));
+
+        webTestClient.post().uri("/orders")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectHeader().valueEquals("ETag", "\"0\"")
+                .expectBody()
+                .jsonPath("$.id").exists()
+                .jsonPath("$.clientName").isEqualTo("Alice");
+    }
+
+    @Test
+    void createOrder_returnsBadRequest_whenDeliveryDateIsInPast() {
+
+        String body = """
+                {
+                  "clientName": "Alice",
+                  "deliveryDate": "%s",
+                  "items": [
+                    { "fruitName": "Apple", "quantityInKilos": 5 }
+                  ]
+                }
+                """.formatted(LocalDate.now());
+
+        webTestClient.post().uri("/orders")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("Delivery date must be at least tomorrow");
+    }
+
+    @Test
+    void updateOrder_returnsBadRequest_whenDeliveryDateIsInPast() {
+        Order order = orderRepository.save(new Order("John", LocalDate.now().plusDays(1),
+                List.of(new OrderItem("Apple", 2))));
+
+        String body = """
+                {
+                  "clientName": "John",
+                  "deliveryDate": "%s",
+                  "items": [
+                    { "fruitName": "Apple", "quantityInKilos": 5 }
+                  ]
+                }
+                """.formatted(LocalDate.now());
+
+        webTestClient.put().uri("/orders/" + order.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("Delivery date must be at least tomorrow");
+    }
+
+    @Test
+    void getAllOrders_streamsNdjson() {
+        orderRepository.save(new Order("John", LocalDate.now().plusDays(1), List.of(new OrderItem("Apple", 2))));
+        orderRepository.save(new Order("Anna", LocalDate.now().plusDays(2), List.of(new OrderItem("Banana", 3))));
+
+        webTestClient.get().uri("/orders")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBodyList(Object.class).hasSize(2);
+    }
+
+    @Test
+    void getOrderById_returnsNotModified_whenETagMatches() {
+        Order order = orderRepository.save(new Order("John", LocalDate.now().plusDays(1),
+                List.of(new OrderItem("Apple", 2))));
+
+        webTestClient.get().uri("/orders/" + order.getId())
+                .header("If-None-Match", "\"0\"")
+                .exchange()
+                .expectStatus().isNotModified();
+    }
+
+    @Test
+    void getOrderById_returnsNotFound_whenIdNotExists() {
+        webTestClient.get().uri("/orders/unknown-id-123")
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody()
+                .jsonPath("$.status").isEqualTo(404);
+    }
+
+    @Test
+    void deleteOrder_returnsPreconditionFailed_whenIfMatchIsStale() {
+        Order order = orderRepository.save(new Order("John", LocalDate.now().plusDays(1),
+                List.of(new OrderItem("Apple", 2))));
+
+        webTestClient.delete().uri("/orders/" + order.getId())
+                .header("If-Match", "\"4\"")
+                .exchange()
+                .expectStatus().isEqualTo(412);
+
+        webTestClient.delete().uri("/orders/" + order.getId())
+                .exchange()
+                .expectStatus().isNoContent();
+    }
+
+    @Test
+    void deleteOrder_matchesAnyStrongTagOfAnIfMatchList() {
+        Order order = orderRepository.save(new Order("John", LocalDate.now().plusDays(1),
+                List.of(new OrderItem("Apple", 2))));
+
+        webTestClient.delete().uri("/orders/" + order.getId())
+                .header("If-Match", "\"4\", W/\"0\"")
+                .exchange()
+                .expectStatus().isEqualTo(412);
+
+        webTestClient.delete().uri("/orders/" + order.getId())
+                .header("If-Match", "\"4\", \"0\"")
+                .exchange()
+                .expectStatus().isNoContent();
+    }
+
+    @Test
+    void orderWrites_keepDemandRollupInStep() {
+        LocalDate day = LocalDate.now().plusDays(1);
+        String body = """
+                {
+                  "clientName": "Alice",
+                  "deliveryDate": "%s",
+                  "items": [ { "fruitName": "Apple", "quantityInKilos": %d } ]
+                }
+                """;
+
+        byte[] created = webTestClient.post().uri("/orders")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(body.formatted(day, 5))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody().returnResult().getResponseBody();
+        String id = JsonPath.read(new String(created), "$.id");
+        assertEquals(5, kilosOf(day, "Apple"));
+
+        webTestClient.put().uri("/orders/" + id)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(body.formatted(day, 1))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("ETag", "\"1\"");
+        assertEquals(1, kilosOf(day, "Apple"));
+
+        webTestClient.delete().uri("/orders/" + id)
+                .exchange()
+                .expectStatus().isNoContent();
+        assertEquals(0, kilosOf(day, "Apple"));
+    }
+
+    private long kilosOf(LocalDate day, String fruitName) {
+        return demandRepository.findAll().stream()
+                .filter(row -> row.getDeliveryDate().equals(day) && row.getFruitName().equals(fruitName))
+                .mapToLong(DailyFruitDemand::getTotalKilos)
+                .sum();
+    }
+}
@@ -0,0 +1,50 @@
+package cat.itacademy.s04.t02.n03.fruit.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BusinessClockTest {
+
+    private static final ZoneId MADRID = ZoneId.of("Europe/Madrid");
+
+    @Test
+    void earliestDeliveryDate_shouldBeTomorrowInTheBusinessZone_notInUtc() {
+        MutableClock clock = new MutableClock(Instant.parse("2026-03-09T23:30:00Z"), MADRID);
+
+        BusinessClock businessClock = new BusinessClock(clock);
+
+        assertEquals(LocalDate.of(2026, 3, 10), businessClock.today());
+        assertEquals(LocalDate.of(2026, 3, 11), businessClock.earliestDeliveryDate());
+    }
+
+    @Test
+    void earliestDeliveryDate_shouldMoveOnAtMidnight() {
+        MutableClock clock = new MutableClock(Instant.parse("2026-03-10T22:59:59Z"), MADRID);
+        BusinessClock businessClock = new BusinessClock(clock);
+        assertEquals(LocalDate.of(2026, 3, 11), businessClock.earliestDeliveryDate());
+
+        clock.advance(Duration.ofSeconds(1));
+
+        assertEquals(LocalDate.of(2026, 3, 12), businessClock.earliestDeliveryDate());
+    }
+
+    @Test
+    void today_shouldFollowTheClockBackwards_andAcrossADaylightSavingChange() {
+        MutableClock clock = new MutableClock(Instant.parse("2026-03-29T12:00:00Z"), MADRID);
+        BusinessClock businessClock = new BusinessClock(clock);
+
+        clock.advance(Duration.ofDays(-1));
+        assertEquals(LocalDate.of(2026, 3, 28), businessClock.today());
+
+        clock.advance(Duration.ofHours(33).plusMinutes(59));
+        assertEquals(LocalDate.of(2026, 3, 29), businessClock.today());
+        clock.advance(Duration.ofMinutes(1));
+        assertEquals(LocalDate.of(2026, 3, 30), businessClock.today());
+    }
+}
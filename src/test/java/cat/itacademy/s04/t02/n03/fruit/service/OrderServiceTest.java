@@ -1,31 +1,59 @@
 package cat.itacademy.s04.t02.n03.fruit.service;
 
+import cat.itacademy.s04.t02.n03.fruit.dto.FruitDemand;
+import cat.itacademy.s04.t02.n03.fruit.dto.OrderBatchItemResult;
 import cat.itacademy.s04.t02.n03.fruit.dto.OrderCreateRequest;
+import cat.itacademy.s04.t02.n03.fruit.dto.OrderFilter;
 import cat.itacademy.s04.t02.n03.fruit.dto.OrderItemRequest;
 import cat.itacademy.s04.t02.n03.fruit.dto.OrderItemResponse;
+import cat.itacademy.s04.t02.n03.fruit.dto.OrderPage;
+import cat.itacademy.s04.t02.n03.fruit.dto.OrderProjection;
+import cat.itacademy.s04.t02.n03.fruit.dto.OrderPatchRequest;
 import cat.itacademy.s04.t02.n03.fruit.dto.OrderResponse;
 import cat.itacademy.s04.t02.n03.fruit.exception.BadRequestException;
+import cat.itacademy.s04.t02.n03.fruit.exception.ConflictException;
 import cat.itacademy.s04.t02.n03.fruit.exception.NotFoundException;
+import cat.itacademy.s04.t02.n03.fruit.exception.PreconditionFailedException;
 import cat.itacademy.s04.t02.n03.fruit.model.Order;
 import cat.itacademy.s04.t02.n03.fruit.model.OrderItem;
+import cat.itacademy.s04.t02.n03.fruit.repository.DailyFruitDemandRepository;
 import cat.itacademy.s04.t02.n03.fruit.repository.OrderRepository;
+import cat.itacademy.s04.t02.n03.fruit.config.OrderCacheProperties;
+import cat.itacademy.s04.t02.n03.fruit.service.cache.InMemorySharedOrderCache;
+import cat.itacademy.s04.t02.n03.fruit.service.cache.OrderCache;
 import cat.itacademy.s04.t02.n03.fruit.service.mapper.OrderMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -35,14 +63,22 @@ class OrderServiceTest {
     @Mock
     private OrderRepository orderRepository;
 
+    @Mock
+    private DailyFruitDemandRepository demandRepository;
+
     @Mock
     private OrderMapper orderMapper;
 
+    private InMemorySharedOrderCache sharedCache;
+
     private OrderService orderService;
 
     @BeforeEach
     void setUp() {
-        orderService = new OrderServiceImpl(orderRepository, orderMapper);
+        sharedCache = new InMemorySharedOrderCache();
+        OrderCache orderCache = new OrderCache(new OrderCacheProperties(100, Duration.ofMinutes(1)),
+                sharedCache, new SimpleMeterRegistry());
+        orderService = new OrderServiceImpl(orderRepository, demandRepository, orderMapper, orderCache);
     }
 
     @Test
@@ -75,6 +111,9 @@ class OrderServiceTest {
 
         assertEquals("abc123", response.id());
         verify(orderRepository).save(toSave);
+
+        assertEquals(expected, orderService.getOrderById("abc123", OrderProjection.ALL));
+        verify(orderRepository, never()).findById(any());
     }
 
     @Test
@@ -156,14 +195,67 @@ class OrderServiceTest {
     }
 
     @Test
-    void getAllOrders_shouldReturnEmptyList_whenNoOrdersExist() {
-        when(orderRepository.findAll()).thenReturn(Collections.emptyList());
+    void createOrders_shouldInsertValidOrdersAndReportInvalidOnes() {
+        LocalDate date = LocalDate.now().plusDays(1);
+        OrderCreateRequest valid = new OrderCreateRequest("Alice", date, List.of(new OrderItemRequest("Apple", 5)));
+        OrderCreateRequest invalid = new OrderCreateRequest("", date, List.of(new OrderItemRequest("Apple", 5)));
+
+        when(orderMapper.toEntity(valid)).thenReturn(new Order("Alice", date, List.of(new OrderItem("Apple", 5))));
+        when(orderMapper.toEntity(invalid)).thenThrow(new BadRequestException("Client name cannot be empty"));
+        when(orderRepository.insertUnordered(anyList())).thenReturn(Map.of());
+
+        List<OrderBatchItemResult> results = orderService.createOrders(Arrays.asList(valid, invalid, null));
+
+        assertEquals(3, results.size());
+        assertNotNull(results.get(0).id());
+        assertNull(results.get(0).error());
+        assertEquals("Client name cannot be empty", results.get(1).error());
+        assertEquals("Malformed order", results.get(2).error());
+        verify(orderRepository).insertUnordered(argThat(orders -> orders.size() == 1));
+    }
+
+    @Test
+    void createOrders_shouldReportANullItem_asAnErrorOfItsOrder() {
+        mapWithRealMapper();
+        LocalDate date = LocalDate.now().plusDays(1);
+        OrderCreateRequest valid = new OrderCreateRequest("Alice", date, List.of(new OrderItemRequest("Apple", 5)));
+        OrderCreateRequest nullItem = new OrderCreateRequest("Bob", date, Arrays.asList((OrderItemRequest) null));
+        when(orderRepository.insertUnordered(anyList())).thenReturn(Map.of());
+
+        List<OrderBatchItemResult> results = orderService.createOrders(List.of(valid, nullItem));
+
+        assertNotNull(results.get(0).id());
+        assertEquals("Items cannot be null", results.get(1).error());
+        verify(orderRepository).insertUnordered(argThat(orders -> orders.size() == 1));
+    }
+
+    @Test
+    void createOrders_shouldReportInsertErrorsPerItem() {
+        LocalDate date = LocalDate.now().plusDays(1);
+        OrderCreateRequest first = new OrderCreateRequest("Alice", date, List.of(new OrderItemRequest("Apple", 5)));
+        OrderCreateRequest second = new OrderCreateRequest("Bob", date, List.of(new OrderItemRequest("Pear", 1)));
+
+        when(orderMapper.toEntity(first)).thenReturn(new Order("Alice", date, List.of(new OrderItem("Apple", 5))));
+        when(orderMapper.toEntity(second)).thenReturn(new Order("Bob", date, List.of(new OrderItem("Pear", 1))));
+        when(orderRepository.insertUnordered(anyList())).thenReturn(Map.of(1, "E11000 duplicate key error"));
 
-        List<OrderResponse> result = orderService.getAllOrders();
+        List<OrderBatchItemResult> results = orderService.createOrders(List.of(first, second));
+
+        assertNotNull(results.get(0).id());
+        assertNull(results.get(1).id());
+        assertEquals("E11000 duplicate key error", results.get(1).error());
+    }
+
+    @Test
+    void getAllOrders_shouldReturnEmptyPage_whenNoOrdersExist() {
+        when(orderRepository.findPage(OrderFilter.NONE, null, 11, OrderProjection.ALL)).thenReturn(Collections.emptyList());
+
+        OrderPage result = orderService.getAllOrders(OrderFilter.NONE, null, 10, OrderProjection.ALL);
 
         assertNotNull(result);
-        assertTrue(result.isEmpty());
-        verify(orderRepository).findAll();
+        assertTrue(result.orders().isEmpty());
+        assertNull(result.nextCursor());
+        verify(orderRepository).findPage(OrderFilter.NONE, null, 11, OrderProjection.ALL);
     }
 
     @Test
@@ -175,7 +267,7 @@ class OrderServiceTest {
 
         Order order2 = new Order("2", "Anna", d2, List.of(new OrderItem("Banana", 3)));
 
-        when(orderRepository.findAll()).thenReturn(List.of(order1, order2));
+        when(orderRepository.findPage(OrderFilter.NONE, null, 11, OrderProjection.ALL)).thenReturn(List.of(order1, order2));
 
         when(orderMapper.toResponse(order1)).thenReturn(
                 new OrderResponse("1", "John", d1, List.of(new OrderItemResponse("Apple", 2)))
@@ -185,13 +277,120 @@ class OrderServiceTest {
                 new OrderResponse("2", "Anna", d2, List.of(new OrderItemResponse("Banana", 3)))
         );
 
-        List<OrderResponse> result = orderService.getAllOrders();
+        OrderPage result = orderService.getAllOrders(OrderFilter.NONE, null, 10, OrderProjection.ALL);
+
+        assertEquals(2, result.orders().size());
+        assertEquals("John", result.orders().get(0).clientName());
+        assertEquals("Anna", result.orders().get(1).clientName());
+        assertNull(result.nextCursor());
+    }
+
+    @Test
+    void getAllOrders_shouldReturnCursor_whenMoreOrdersRemain() {
+        String lastId = "6650a1b2c3d4e5f601234567";
+        LocalDate date = LocalDate.now().plusDays(1);
+
+        Order order1 = new Order(lastId, "John", date, List.of(new OrderItem("Apple", 2)));
+        Order order2 = new Order("6650a1b2c3d4e5f601234568", "Anna", date, List.of(new OrderItem("Banana", 3)));
+
+        when(orderRepository.findPage(OrderFilter.NONE, null, 2, OrderProjection.ALL)).thenReturn(List.of(order1, order2));
+        when(orderMapper.toResponse(order1)).thenReturn(
+                new OrderResponse(lastId, "John", date, List.of(new OrderItemResponse("Apple", 2)))
+        );
+
+        OrderPage firstPage = orderService.getAllOrders(OrderFilter.NONE, null, 1, OrderProjection.ALL);
+
+        assertEquals(1, firstPage.orders().size());
+        assertNotNull(firstPage.nextCursor());
+
+        when(orderRepository.findPage(OrderFilter.NONE, lastId, 2, OrderProjection.ALL)).thenReturn(List.of(order2));
+
+        orderService.getAllOrders(OrderFilter.NONE, firstPage.nextCursor(), 1, OrderProjection.ALL);
+
+        verify(orderRepository).findPage(OrderFilter.NONE, lastId, 2, OrderProjection.ALL);
+    }
+
+    @Test
+    void getAllOrders_shouldPassFilterToRepository() {
+        OrderFilter filter = new OrderFilter("John", LocalDate.now().plusDays(1), LocalDate.now().plusDays(7), "Apple");
+
+        when(orderRepository.findPage(filter, null, 11, OrderProjection.ALL)).thenReturn(Collections.emptyList());
+
+        orderService.getAllOrders(filter, null, 10, OrderProjection.ALL);
+
+        verify(orderRepository).findPage(filter, null, 11, OrderProjection.ALL);
+    }
+
+    @Test
+    void getAllOrders_shouldThrow_whenCursorIsInvalid() {
+        assertThrows(BadRequestException.class, () -> orderService.getAllOrders(OrderFilter.NONE, "not-a-cursor", 10, OrderProjection.ALL));
+    }
+
+    @Test
+    void getAllOrders_shouldThrow_whenLimitIsOutOfRange() {
+        assertThrows(BadRequestException.class, () -> orderService.getAllOrders(OrderFilter.NONE, null, 0, OrderProjection.ALL));
+        assertThrows(BadRequestException.class, () -> orderService.getAllOrders(OrderFilter.NONE, null, 1001, OrderProjection.ALL));
+    }
+
+    @Test
+    void searchOrders_shouldSearchTheNormalizedPrefix_andContinueAfterTheLastKey() {
+        String lastId = "6650a1b2c3d4e5f601234567";
+        LocalDate date = LocalDate.now().plusDays(1);
+        Order order1 = new Order(lastId, "Frúit Mart", date, List.of(new OrderItem("Apple", 2)));
+        Order order2 = new Order("6650a1b2c3d4e5f601234568", "Fruit Market", date, List.of(new OrderItem("Pear", 1)));
+
+        when(orderRepository.search("fruit ma", null, null, null, 2)).thenReturn(List.of(order1, order2));
 
-        assertEquals(2, result.size());
-        assertEquals("John", result.get(0).clientName());
-        assertEquals("Anna", result.get(1).clientName());
+        OrderPage firstPage = orderService.searchOrders("  FRUIT   Ma", null, null, 1);
 
-        verify(orderRepository).findAll();
+        assertNotNull(firstPage.nextCursor());
+        assertThrows(BadRequestException.class, () -> orderService.getAllOrders(OrderFilter.NONE, firstPage.nextCursor(), 1, OrderProjection.ALL));
+        assertThrows(BadRequestException.class, () -> orderService.searchOrders(null, "Apple", firstPage.nextCursor(), 1));
+
+        orderService.searchOrders("fruit ma", null, firstPage.nextCursor(), 1);
+
+        verify(orderRepository).search("fruit ma", null, "fruit mart", lastId, 2);
+    }
+
+    @Test
+    void streamAllOrders_shouldMapEveryOrderFromTheCursor() {
+        LocalDate date = LocalDate.now().plusDays(1);
+        Order order = new Order("1", "John", date, List.of(new OrderItem("Apple", 2)));
+        OrderResponse response = new OrderResponse("1", "John", date, List.of(new OrderItemResponse("Apple", 2)));
+
+        when(orderRepository.streamAll(OrderFilter.NONE, OrderProjection.ALL)).thenReturn(Stream.of(order));
+        when(orderMapper.toResponse(order)).thenReturn(response);
+
+        List<OrderResponse> streamed = new ArrayList<>();
+        orderService.streamAllOrders(OrderFilter.NONE, OrderProjection.ALL, streamed::add);
+
+        assertEquals(List.of(response), streamed);
+    }
+
+    @Test
+    void streamFruitDemand_shouldReadTheRollup_whenNotFilteringByClient() {
+        FruitDemand demand = new FruitDemand(LocalDate.now().plusDays(1), "Apple", 7);
+        OrderFilter filter = new OrderFilter(null, null, null, "Apple");
+        when(demandRepository.streamDemand(filter)).thenReturn(Stream.of(demand));
+
+        List<FruitDemand> streamed = new ArrayList<>();
+        orderService.streamFruitDemand(filter, streamed::add);
+
+        assertEquals(List.of(demand), streamed);
+        verify(orderRepository, never()).streamFruitDemand(any());
+    }
+
+    @Test
+    void streamFruitDemand_shouldAggregateOrders_whenFilteringByClient() {
+        FruitDemand demand = new FruitDemand(LocalDate.now().plusDays(1), "Apple", 7);
+        OrderFilter filter = new OrderFilter("John", null, null, null);
+        when(orderRepository.streamFruitDemand(filter)).thenReturn(Stream.of(demand));
+
+        List<FruitDemand> streamed = new ArrayList<>();
+        orderService.streamFruitDemand(filter, streamed::add);
+
+        assertEquals(List.of(demand), streamed);
+        verify(demandRepository, never()).streamDemand(any());
     }
 
     @Test
@@ -208,7 +407,7 @@ class OrderServiceTest {
 
         when(orderMapper.toResponse(order)).thenReturn(expected);
 
-        OrderResponse result = orderService.getOrderById(id);
+        OrderResponse result = orderService.getOrderById(id, OrderProjection.ALL);
 
         assertEquals("John", result.clientName());
         assertEquals("Apple", result.items().get(0).fruitName());
@@ -217,82 +416,339 @@ class OrderServiceTest {
         verify(orderMapper).toResponse(order);
     }
 
+    @Test
+    void getOrderById_shouldFallBackToTheArchive_whenTheOrderIsNoLongerLive() {
+        String id = "archived-id";
+        Order order = new Order(id, "John", LocalDate.now().minusYears(1), List.of(new OrderItem("Apple", 2)));
+        OrderResponse expected = new OrderResponse(id, "John", order.getDeliveryDate(),
+                List.of(new OrderItemResponse("Apple", 2)));
+
+        when(orderRepository.findById(id)).thenReturn(Optional.empty());
+        when(orderRepository.findArchivedById(id, OrderProjection.ALL)).thenReturn(Optional.of(order));
+        when(orderMapper.toResponse(order)).thenReturn(expected);
+
+        assertEquals(expected, orderService.getOrderById(id, OrderProjection.ALL));
+        assertEquals(expected, orderService.getOrderById(id, OrderProjection.ALL));
+        verify(orderRepository).findArchivedById(id, OrderProjection.ALL);
+    }
+
     @Test
     void getOrderById_shouldThrowNotFound_whenOrderDoesNotExist() {
         String id = "not-found-id";
 
         when(orderRepository.findById(id)).thenReturn(Optional.empty());
 
-        assertThrows(NotFoundException.class, () -> orderService.getOrderById(id));
+        NotFoundException ex = assertThrows(NotFoundException.class, () -> orderService.getOrderById(id, OrderProjection.ALL));
 
+        assertEquals("Order not found", ex.getMessage());
+        assertEquals(0, ex.getStackTrace().length);
         verify(orderRepository).findById(id);
     }
 
+    @Test
+    void createOrder_shouldRejectWithTheSameStacklessException_whenClientNameIsBlank() {
+        OrderCreateRequest request = new OrderCreateRequest(
+                " ",
+                LocalDate.now().plusDays(1),
+                List.of(new OrderItemRequest("Apple", 5))
+        );
+        OrderCache orderCache = new OrderCache(new OrderCacheProperties(100, Duration.ofMinutes(1)),
+                sharedCache, new SimpleMeterRegistry());
+        OrderService realMapperService = new OrderServiceImpl(orderRepository, demandRepository, new OrderMapper(), orderCache);
+
+        BadRequestException first = assertThrows(BadRequestException.class, () -> realMapperService.createOrder(request));
+        BadRequestException second = assertThrows(BadRequestException.class, () -> realMapperService.createOrder(request));
+
+        assertSame(first, second);
+        assertEquals(0, first.getStackTrace().length);
+        assertEquals("Client name cannot be empty", first.getMessage());
+    }
+
+    @Test
+    void updateOrder_shouldRejectTomorrowsDate_onceTheBusinessClockPassesMidnight() {
+        ZoneId zone = ZoneId.of("Europe/Madrid");
+        MutableClock clock = new MutableClock(Instant.parse("2026-03-10T22:59:00Z"), zone);
+        OrderCache orderCache = new OrderCache(new OrderCacheProperties(100, Duration.ofMinutes(1)),
+                sharedCache, new SimpleMeterRegistry());
+        OrderService clockedService = new OrderServiceImpl(orderRepository, demandRepository,
+                new OrderMapper(new BusinessClock(clock)), orderCache);
+        OrderCreateRequest request = new OrderCreateRequest("Client", LocalDate.of(2026, 3, 11),
+                List.of(new OrderItemRequest("Apple", 2)));
+        Order previous = new Order("123", "Client", LocalDate.of(2026, 3, 12), List.of(new OrderItem("Apple", 2)));
+        previous.setVersion(1L);
+        when(orderRepository.findAndUpdateFields(eq("123"), isNull(), any(Order.class))).thenReturn(Optional.of(previous));
+
+        assertEquals(LocalDate.of(2026, 3, 11), clockedService.updateOrder("123", request, null).deliveryDate());
+
+        clock.advance(Duration.ofMinutes(1));
+
+        BadRequestException ex = assertThrows(BadRequestException.class, () -> clockedService.updateOrder("123", request, null));
+        assertEquals("Delivery date must be at least tomorrow", ex.getMessage());
+    }
+
+    @Test
+    void getOrderById_shouldServeRepeatedReadsFromCache() {
+        String id = "123";
+        Order order = new Order(id, "John", LocalDate.now().plusDays(1), List.of(new OrderItem("Apple", 2)));
+        OrderResponse expected = new OrderResponse(id, "John", order.getDeliveryDate(),
+                List.of(new OrderItemResponse("Apple", 2)));
+
+        when(orderRepository.findById(id)).thenReturn(Optional.of(order));
+        when(orderMapper.toResponse(order)).thenReturn(expected);
+
+        orderService.getOrderById(id, OrderProjection.ALL);
+        OrderResponse result = orderService.getOrderById(id, OrderProjection.ALL);
+
+        assertEquals(expected, result);
+        verify(orderRepository, times(1)).findById(id);
+        assertEquals(Optional.of(expected), sharedCache.get(id));
+    }
+
+    @Test
+    void getOrderById_shouldProjectCachedOrder_orReadOnlyTheRequestedFields() {
+        OrderProjection namesOnly = OrderProjection.parse("id,clientName");
+        OrderResponse cached = new OrderResponse("123", "John", LocalDate.now().plusDays(1),
+                List.of(new OrderItemResponse("Apple", 2)), 0L);
+        sharedCache.put(cached);
+        orderService.getOrderById("123", OrderProjection.ALL);
+
+        assertEquals(new OrderResponse("123", "John", null, null, 0L), orderService.getOrderById("123", namesOnly));
+
+        Order projected = new Order("456", "Anna", null, null);
+        OrderResponse expected = new OrderResponse("456", "Anna", null, null);
+        when(orderRepository.findById("456", namesOnly)).thenReturn(Optional.of(projected));
+        when(orderMapper.toResponse(projected)).thenReturn(expected);
+
+        assertEquals(expected, orderService.getOrderById("456", namesOnly));
+        verify(orderRepository, never()).findById("456");
+    }
+
+    @Test
+    void getOrderById_shouldReadFromSharedTier_beforeRepository() {
+        OrderResponse shared = new OrderResponse("123", "John", LocalDate.now().plusDays(1),
+                List.of(new OrderItemResponse("Apple", 2)));
+        sharedCache.put(shared);
+
+        assertEquals(shared, orderService.getOrderById("123", OrderProjection.ALL));
+        verify(orderRepository, never()).findById(any());
+    }
+
+    @Test
+    void updateOrder_shouldRefreshCachedOrder() {
+        mapWithRealMapper();
+        String id = "123";
+        LocalDate date = LocalDate.now().plusDays(1);
+        Order order = new Order(id, "John", date, List.of(new OrderItem("Apple", 2)));
+        OrderResponse before = new OrderResponse(id, "John", date, List.of(new OrderItemResponse("Apple", 2)));
+        OrderResponse after = new OrderResponse(id, "Anna", date, List.of(new OrderItemResponse("Apple", 2)));
+
+        when(orderRepository.findById(id)).thenReturn(Optional.of(order));
+        when(orderMapper.toResponse(order)).thenReturn(before);
+        when(orderRepository.findAndUpdateFields(eq(id), isNull(), any(Order.class))).thenReturn(Optional.of(order));
+        when(orderMapper.toResponse(argThat(o -> o != null && "Anna".equals(o.getClientName())))).thenReturn(after);
+
+        orderService.getOrderById(id, OrderProjection.ALL);
+        orderService.updateOrder(id, new OrderCreateRequest("Anna", date, List.of(new OrderItemRequest("Apple", 2))), null);
+
+        assertEquals("Anna", orderService.getOrderById(id, OrderProjection.ALL).clientName());
+        verify(orderRepository, times(1)).findById(id);
+    }
+
+    @Test
+    void deleteOrder_shouldEvictCachedOrder() {
+        String id = "123";
+        Order order = new Order(id, "John", LocalDate.now().plusDays(1), List.of(new OrderItem("Apple", 2)));
+        OrderResponse response = new OrderResponse(id, "John", order.getDeliveryDate(),
+                List.of(new OrderItemResponse("Apple", 2)));
+
+        when(orderRepository.findById(id)).thenReturn(Optional.of(order)).thenReturn(Optional.empty());
+        when(orderMapper.toResponse(order)).thenReturn(response);
+        when(orderRepository.findAndRemove(id, null)).thenReturn(Optional.of(order));
+
+        orderService.getOrderById(id, OrderProjection.ALL);
+        orderService.deleteOrder(id, null);
+
+        assertThrows(NotFoundException.class, () -> orderService.getOrderById(id, OrderProjection.ALL));
+        assertTrue(sharedCache.get(id).isEmpty());
+    }
+
     @Test
     void updateOrder_shouldReturnUpdatedOrder_whenIdExists() {
+        mapWithRealMapper();
         String id = "123";
         LocalDate newDate = LocalDate.now().plusDays(3);
 
         OrderCreateRequest request = new OrderCreateRequest("Updated Client", newDate,
                 List.of(new OrderItemRequest("Orange", 5)));
 
-        Order existing = new Order(id, "Old Client", LocalDate.now().plusDays(1),
+        Order previous = new Order(id, "Old Client", LocalDate.now().plusDays(1),
                 List.of(new OrderItem("Apple", 2)));
+        previous.setVersion(4L);
 
-        Order updated = new Order(id, request.clientName(), request.deliveryDate(),
-                List.of(new OrderItem("Orange", 5)));
-
-        when(orderRepository.findById(id)).thenReturn(Optional.of(existing));
-        when(orderRepository.save(any(Order.class))).thenReturn(updated);
+        when(orderRepository.findAndUpdateFields(eq(id), isNull(), any(Order.class))).thenReturn(Optional.of(previous));
 
         OrderResponse expected = new OrderResponse(id, "Updated Client", newDate,
-                List.of(new OrderItemResponse("Orange", 5)));
+                List.of(new OrderItemResponse("Orange", 5)), 5L);
 
-        when(orderMapper.toResponse(updated)).thenReturn(expected);
+        when(orderMapper.toResponse(argThat(updated -> updated != null
+                && updated.getId().equals(id)
+                && updated.getVersion() == 5L
+                && updated.getClientName().equals("Updated Client")))).thenReturn(expected);
 
-        OrderResponse result = orderService.updateOrder(id, request);
+        OrderResponse result = orderService.updateOrder(id, request, null);
 
         assertEquals("Updated Client", result.clientName());
         assertEquals("Orange", result.items().get(0).fruitName());
+
+        verify(orderRepository).findAndUpdateFields(eq(id), isNull(), argThat(changes ->
+                changes.getClientName().equals("Updated Client")
+                        && changes.getDeliveryDate().equals(newDate)
+                        && changes.getItems().get(0).getFruitName().equals("Orange")));
+        verify(orderRepository, never()).findById(any());
+        verify(orderRepository, never()).save(any());
     }
 
     @Test
     void updateOrder_shouldThrowNotFound_whenIdDoesNotExist() {
+        mapWithRealMapper();
         String id = "not-found";
         OrderCreateRequest request = new OrderCreateRequest("Client", LocalDate.now().plusDays(1),
                 List.of(new OrderItemRequest("Apple", 2)));
 
-        when(orderRepository.findById(id)).thenReturn(Optional.empty());
+        when(orderRepository.findAndUpdateFields(eq(id), isNull(), any(Order.class))).thenReturn(Optional.empty());
 
-        assertThrows(NotFoundException.class, () -> orderService.updateOrder(id, request));
+        assertThrows(NotFoundException.class, () -> orderService.updateOrder(id, request, null));
 
-        verify(orderRepository).findById(id);
+        verify(orderRepository).findAndUpdateFields(eq(id), isNull(), any(Order.class));
+        verify(demandRepository, never()).increment(any());
     }
 
     @Test
-    void deleteOrder_shouldDelete_whenIdExists() {
+    void updateOrder_shouldThrowPreconditionFailed_whenVersionIsStale() {
+        mapWithRealMapper();
         String id = "123";
+        OrderCreateRequest request = new OrderCreateRequest("Client", LocalDate.now().plusDays(1),
+                List.of(new OrderItemRequest("Apple", 2)));
 
-        Order existing = new Order(id, "John", LocalDate.now().plusDays(1),
-                List.of(new OrderItem("Apple", 2)));
+        when(orderRepository.findAndUpdateFields(eq(id), eq(3L), any(Order.class))).thenReturn(Optional.empty());
+        when(orderRepository.existsById(id)).thenReturn(true);
+
+        assertThrows(PreconditionFailedException.class, () -> orderService.updateOrder(id, request, 3L));
+    }
 
-        when(orderRepository.findById(id)).thenReturn(Optional.of(existing));
+    @Test
+    void patchOrder_shouldThrowPreconditionFailed_whenVersionIsStale() {
+        String id = "123";
+        Order current = new Order(id, "John", LocalDate.now().plusDays(1), List.of(new OrderItem("Apple", 2)));
+        current.setVersion(4L);
 
-        orderService.deleteOrder(id);
+        when(orderRepository.findById(id)).thenReturn(Optional.of(current));
+        when(orderRepository.existsById(id)).thenReturn(true);
 
-        verify(orderRepository).delete(existing);
+        assertThrows(PreconditionFailedException.class,
+                () -> orderService.patchOrder(id, new OrderPatchRequest("Jane", null, null), 3L));
+        verify(orderRepository, never()).findAndPatch(any(), any());
+    }
+
+    @Test
+    void patchOrder_shouldRetryOnConcurrentWrites_andThenGiveUp() {
+        String id = "123";
+        Order current = new Order(id, "John", LocalDate.now().plusDays(1), List.of(new OrderItem("Apple", 2)));
+        OrderPatchRequest request = new OrderPatchRequest("Jane", null, null);
+
+        when(orderRepository.findById(id)).thenReturn(Optional.of(current));
+        when(orderMapper.applyPatch(current, request)).thenReturn(current);
+        when(orderRepository.findAndPatch(current, current)).thenReturn(Optional.empty());
+
+        assertThrows(ConflictException.class, () -> orderService.patchOrder(id, request, null));
+        verify(orderRepository, times(OrderServiceImpl.MAX_PATCH_ATTEMPTS)).findAndPatch(current, current);
+    }
+
+    @Test
+    void deleteOrder_shouldDelete_whenIdExists() {
+        String id = "123";
+
+        when(orderRepository.findAndRemove(id, null)).thenReturn(Optional.of(
+                new Order(id, "John", LocalDate.now().plusDays(1), List.of(new OrderItem("Apple", 2)))));
+
+        orderService.deleteOrder(id, null);
+
+        verify(orderRepository).findAndRemove(id, null);
+        verify(orderRepository, never()).findById(any());
     }
 
     @Test
     void deleteOrder_shouldThrowNotFound_whenIdDoesNotExist() {
         String id = "not-found";
 
-        when(orderRepository.findById(id)).thenReturn(Optional.empty());
+        when(orderRepository.findAndRemove(id, null)).thenReturn(Optional.empty());
 
-        assertThrows(NotFoundException.class, () -> orderService.deleteOrder(id));
+        assertThrows(NotFoundException.class, () -> orderService.deleteOrder(id, null));
 
-        verify(orderRepository).findById(id);
+        verify(orderRepository).findAndRemove(id, null);
     }
 
-}
+    @Test
+    void deleteOrder_shouldThrowPreconditionFailed_whenVersionIsStale() {
+        String id = "123";
+
+        when(orderRepository.findAndRemove(id, 3L)).thenReturn(Optional.empty());
+        when(orderRepository.existsById(id)).thenReturn(true);
+
+        assertThrows(PreconditionFailedException.class, () -> orderService.deleteOrder(id, 3L));
+
+        verify(demandRepository, never()).increment(any());
+    }
+
+    @Test
+    void createOrder_shouldAddItemsToDemandRollup() {
+        LocalDate date = LocalDate.now().plusDays(1);
+        OrderCreateRequest request = new OrderCreateRequest("Alice", date,
+                List.of(new OrderItemRequest("Apple", 5), new OrderItemRequest("Apple", 2)));
+        Order order = new Order("Alice", date, List.of(new OrderItem("Apple", 5), new OrderItem("Apple", 2)));
+        Order saved = new Order("abc123", "Alice", date, order.getItems());
+
+        when(orderMapper.toEntity(request)).thenReturn(order);
+        when(orderRepository.save(order)).thenReturn(saved);
+        when(orderMapper.toResponse(saved)).thenReturn(new OrderResponse("abc123", "Alice", date, List.of()));
+
+        orderService.createOrder(request);
+
+        verify(demandRepository).increment(List.of(new FruitDemand(date, "Apple", 7)));
+    }
+
+    @Test
+    void updateOrder_shouldApplyOnlyTheDifferenceToDemandRollup() {
+        mapWithRealMapper();
+        String id = "123";
+        LocalDate date = LocalDate.now().plusDays(1);
+        Order previous = new Order(id, "John", date, List.of(new OrderItem("Apple", 2), new OrderItem("Pear", 1)));
+        OrderCreateRequest request = new OrderCreateRequest("John", date,
+                List.of(new OrderItemRequest("Apple", 5), new OrderItemRequest("Pear", 1)));
+
+        when(orderRepository.findAndUpdateFields(eq(id), isNull(), any(Order.class))).thenReturn(Optional.of(previous));
+        when(orderMapper.toResponse(any(Order.class))).thenReturn(new OrderResponse(id, "John", date, List.of()));
 
+        orderService.updateOrder(id, request, null);
+
+        verify(demandRepository).increment(List.of(new FruitDemand(date, "Apple", 3)));
+    }
+
+    @Test
+    void deleteOrder_shouldSubtractItemsFromDemandRollup() {
+        String id = "123";
+        LocalDate date = LocalDate.now().plusDays(1);
+        when(orderRepository.findAndRemove(id, null)).thenReturn(Optional.of(
+                new Order(id, "John", date, List.of(new OrderItem("Apple", 2)))));
+
+        orderService.deleteOrder(id, null);
+
+        verify(demandRepository).increment(List.of(new FruitDemand(date, "Apple", -2)));
+    }
+
+    private void mapWithRealMapper() {
+        OrderMapper realMapper = new OrderMapper();
+        when(orderMapper.toEntity(any(OrderCreateRequest.class)))
+                .thenAnswer(invocation -> realMapper.toEntity(invocation.getArgument(0)));
+    }
+}
@@ -0,0 +1,134 @@
+package cat.itacademy.s04.t02.n03.fruit.service.writebehind;
+
+import cat.itacademy.s04.t02.n03.fruit.config.OrderCacheProperties;
+import cat.itacademy.s04.t02.n03.fruit.config.OrderWriteBehindProperties;
+import cat.itacademy.s04.t02.n03.fruit.dto.FruitDemand;
+import cat.itacademy.s04.t02.n03.fruit.model.Order;
+import cat.itacademy.s04.t02.n03.fruit.model.OrderItem;
+import cat.itacademy.s04.t02.n03.fruit.repository.DailyFruitDemandRepository;
+import cat.itacademy.s04.t02.n03.fruit.repository.OrderRepository;
+import cat.itacademy.s04.t02.n03.fruit.service.cache.InMemorySharedOrderCache;
+import cat.itacademy.s04.t02.n03.fruit.service.cache.OrderCache;
+import cat.itacademy.s04.t02.n03.fruit.service.mapper.OrderMapper;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.web.context.WebServerGracefulShutdownLifecycle;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class LogOrderWriteBehindTest {
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private DailyFruitDemandRepository demandRepository;
+
+    @TempDir
+    private Path directory;
+
+    private LogOrderWriteBehind writeBehind;
+
+    @AfterEach
+    void tearDown() {
+        if (writeBehind != null && writeBehind.isRunning()) {
+            writeBehind.stop();
+        }
+    }
+
+    @Test
+    void start_shouldReplayOrdersLeftInTheLog_andCountTheOnesAlreadyStoredInTheRollup() throws Exception {
+        Order stored = order("Alice");
+        Order lost = order("Bob");
+        OrderWriteBehindLog log = OrderWriteBehindLog.open(directory, 64 * 1024, false);
+        log.append(objectMapper.writeValueAsBytes(stored));
+        log.append(objectMapper.writeValueAsBytes(lost));
+        log.close();
+        writeBehind = writeBehind();
+
+        when(orderRepository.insertUnordered(anyList())).thenReturn(Map.of(0, "E11000 duplicate key error"));
+        when(orderRepository.existsById(stored.getId())).thenReturn(true);
+
+        writeBehind.start();
+
+        ArgumentCaptor<List<Order>> inserted = ArgumentCaptor.captor();
+        verify(orderRepository, timeout(2000)).insertUnordered(inserted.capture());
+        assertEquals(List.of(stored.getId(), lost.getId()), inserted.getValue().stream().map(Order::getId).toList());
+
+        writeBehind.awaitFlushed(lost.getId());
+        verify(demandRepository).increment(List.of(new FruitDemand(lost.getDeliveryDate(), "Apple", 6)));
+        assertTrue(writeBehind.pending(lost.getId()).isEmpty());
+    }
+
+    @Test
+    void flush_shouldApplyTheRollupOfTheFirstInsert_whenRetriedAfterTheRollupFailed() {
+        writeBehind = writeBehind();
+        Order order = order("Dave");
+        when(orderRepository.insertUnordered(anyList())).thenReturn(Map.of());
+        doThrow(new DataAccessResourceFailureException("Rollup unavailable"))
+                .doNothing()
+                .when(demandRepository).increment(anyList());
+
+        writeBehind.start();
+        writeBehind.append(order);
+        writeBehind.awaitFlushed(order.getId());
+
+        verify(orderRepository).insertUnordered(anyList());
+        verify(demandRepository, times(2)).increment(List.of(new FruitDemand(order.getDeliveryDate(), "Apple", 3)));
+        assertTrue(writeBehind.pending(order.getId()).isEmpty());
+    }
+
+    @Test
+    void append_shouldBeDurableBeforeStart() throws Exception {
+        writeBehind = writeBehind();
+        Order order = order("Carol");
+
+        writeBehind.append(order);
+
+        assertEquals(order.getId(), writeBehind.pending(order.getId()).orElseThrow().id());
+        assertTrue(writeBehind.getPhase() < WebServerGracefulShutdownLifecycle.SMART_LIFECYCLE_PHASE);
+    }
+
+    private LogOrderWriteBehind writeBehind() {
+        OrderCache orderCache = new OrderCache(new OrderCacheProperties(100, Duration.ofMinutes(1)),
+                new InMemorySharedOrderCache(), new SimpleMeterRegistry());
+        OrderWriteBehindProperties properties = new OrderWriteBehindProperties(true, directory, DataSize.ofKilobytes(64),
+                false, 10, Duration.ofMillis(10), Duration.ofMillis(10), Duration.ofSeconds(5));
+        return new LogOrderWriteBehind(orderRepository, demandRepository, new OrderMapper(), orderCache,
+                objectMapper, properties, new SimpleMeterRegistry());
+    }
+
+    private static Order order(String clientName) {
+        Order order = new Order(new ObjectId().toHexString(), clientName, LocalDate.now().plusDays(1),
+                List.of(new OrderItem("Apple", 3)));
+        order.setVersion(0L);
+        return order;
+    }
+}
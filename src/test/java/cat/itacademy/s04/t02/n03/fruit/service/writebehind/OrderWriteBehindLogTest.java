@@ -0,0 +1,98 @@
+package cat.itacademy.s04.t02.n03.fruit.service.writebehind;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderWriteBehindLogTest {
+
+    private static final int SEGMENT_BYTES = 64;
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void reopen_shouldRecoverEveryAppendedRecord() throws IOException {
+        OrderWriteBehindLog log = OrderWriteBehindLog.open(directory, SEGMENT_BYTES, true);
+        log.append(bytes("first"));
+        log.append(bytes("second"));
+        log.close();
+
+        OrderWriteBehindLog reopened = OrderWriteBehindLog.open(directory, SEGMENT_BYTES, true);
+
+        assertEquals(List.of("first", "second"), payloads(reopened.takeRecovered()));
+    }
+
+    @Test
+    void reopen_shouldSkipRecordsBeforeTheCheckpoint() throws IOException {
+        OrderWriteBehindLog log = OrderWriteBehindLog.open(directory, SEGMENT_BYTES, true);
+        OrderWriteBehindLog.Position first = log.append(bytes("first"));
+        log.append(bytes("second"));
+        log.checkpoint(first);
+        log.close();
+
+        OrderWriteBehindLog reopened = OrderWriteBehindLog.open(directory, SEGMENT_BYTES, true);
+
+        assertEquals(List.of("second"), payloads(reopened.takeRecovered()));
+    }
+
+    @Test
+    void append_shouldRollToANewSegment_andCheckpointShouldDeleteFlushedSegments() throws IOException {
+        OrderWriteBehindLog log = OrderWriteBehindLog.open(directory, SEGMENT_BYTES, false);
+        OrderWriteBehindLog.Position end = null;
+        for (int i = 0; i < 6; i++) {
+            end = log.append(bytes("record-" + i));
+        }
+        assertTrue(end.segment() > 1);
+
+        log.checkpoint(end);
+        log.append(bytes("after"));
+        log.close();
+
+        assertFalse(Files.exists(directory.resolve("%020d.log".formatted(1))));
+        OrderWriteBehindLog reopened = OrderWriteBehindLog.open(directory, SEGMENT_BYTES, false);
+        assertEquals(List.of("after"), payloads(reopened.takeRecovered()));
+    }
+
+    @Test
+    void reopen_shouldStopAtATornRecord_andOverwriteIt() throws IOException {
+        OrderWriteBehindLog log = OrderWriteBehindLog.open(directory, SEGMENT_BYTES, true);
+        OrderWriteBehindLog.Position first = log.append(bytes("first"));
+        log.append(bytes("second"));
+        log.close();
+        corruptByteAt(first.offset() + 8);
+
+        OrderWriteBehindLog reopened = OrderWriteBehindLog.open(directory, SEGMENT_BYTES, true);
+        assertEquals(List.of("first"), payloads(reopened.takeRecovered()));
+        reopened.append(bytes("third"));
+        reopened.close();
+
+        assertEquals(List.of("first", "third"), payloads(OrderWriteBehindLog.open(directory, SEGMENT_BYTES, true).takeRecovered()));
+    }
+
+    private void corruptByteAt(int offset) throws IOException {
+        try (FileChannel channel = FileChannel.open(directory.resolve("%020d.log".formatted(1)), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{'X'}), offset);
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static List<String> payloads(List<OrderWriteBehindLog.Entry> entries) {
+        return entries.stream().map(entry -> new String(entry.payload(), StandardCharsets.UTF_8)).toList();
+    }
+}